@@ -0,0 +1,134 @@
+package com.lj.rpc.benchmark.dispatcher;
+
+import com.lj.rpc.api.service.HelloService;
+import com.lj.rpc.client.entity.RequestMetaData;
+import com.lj.rpc.client.transport.netty.NettyRpcClient;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.protocol.MessageHeader;
+import com.lj.rpc.core.protocol.RpcMessage;
+import com.lj.rpc.server.annotation.RpcService;
+import com.lj.rpc.server.cache.LocalServiceCache;
+import com.lj.rpc.server.config.RpcServerProperties;
+import com.lj.rpc.server.transport.netty.NettyRpcServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 非阻塞方法直接在 IO 线程中执行的效果: 单个线程串行同步调用一个极短的服务方法,
+ * 对比提交到业务线程池与在 IO 线程中直接执行的调用延迟分布
+ *
+ * @author liujue
+ * @version 1.0
+ * @since 2024/8/2
+ */
+@BenchmarkMode(Mode.SampleTime)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Threads(1)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DirectDispatchBenchmark {
+
+    private static final String SERVICE_NAME = HelloService.class.getName() + "-1.0";
+
+    @Param({"false", "true"})
+    private boolean nonBlocking;
+
+    private NettyRpcClient client;
+
+    private NettyRpcServer server;
+
+    private Thread serverThread;
+
+    private String host;
+
+    private int port;
+
+    @Setup
+    public void setup() throws Exception {
+        LocalServiceCache.addService(SERVICE_NAME,
+                nonBlocking ? new NonBlockingHelloServiceImpl() : new HelloServiceImpl(), HelloService.class);
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RpcServerProperties serverProperties = new RpcServerProperties();
+        server = new NettyRpcServer(serverProperties);
+        serverThread = new Thread(() -> server.start(port), "rpc-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        host = InetAddress.getLocalHost().getHostAddress();
+
+        client = new NettyRpcClient();
+        // 等待服务端启动完成
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            try {
+                client.sendRequest(request());
+                break;
+            } catch (RuntimeException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        client.close();
+        server.stop();
+        serverThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Benchmark
+    public Object sayHello() {
+        RpcMessage response = client.sendRequest(request());
+        return ((RpcResponse) response.getBody()).getReturnValue();
+    }
+
+    private RequestMetaData request() {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName(SERVICE_NAME);
+        request.setMethod("sayHello");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameterValues(new Object[]{"liujue"});
+        RpcMessage message = new RpcMessage();
+        message.setMessageHeader(MessageHeader.build("hessian"));
+        message.setBody(request);
+        return RequestMetaData.builder()
+                .rpcMessage(message)
+                .serverAddr(host)
+                .port(port)
+                .timeout(5000)
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(DirectDispatchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    public static class HelloServiceImpl implements HelloService {
+
+        @Override
+        public String sayHello(String name) {
+            return "hello: " + name;
+        }
+    }
+
+    @RpcService(nonBlocking = true)
+    public static class NonBlockingHelloServiceImpl extends HelloServiceImpl {
+    }
+}
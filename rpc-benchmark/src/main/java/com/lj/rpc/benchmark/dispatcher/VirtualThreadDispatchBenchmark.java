@@ -0,0 +1,146 @@
+package com.lj.rpc.benchmark.dispatcher;
+
+import com.lj.rpc.api.service.HelloService;
+import com.lj.rpc.client.config.RpcClientProperties;
+import com.lj.rpc.client.entity.RequestMetaData;
+import com.lj.rpc.client.transport.netty.NettyRpcClient;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.protocol.MessageHeader;
+import com.lj.rpc.core.protocol.RpcMessage;
+import com.lj.rpc.server.cache.LocalServiceCache;
+import com.lj.rpc.server.config.RpcServerProperties;
+import com.lj.rpc.server.transport.netty.NettyRpcServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端业务执行方式的对比: 服务方法阻塞 20ms (模拟访问数据库), 大量线程并发同步调用,
+ * 对比固定大小线程池与每个请求一个虚拟线程的吞吐量
+ *
+ * <p>virtual 模式需要在 JDK 21 及以上版本运行, 否则服务端退回线程池, 两组结果相同;
+ * 线程池固定为 32 个线程, 请求数超过线程数时在队列中排队
+ *
+ * @author liujue
+ * @version 1.0
+ * @since 2024/8/2
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Threads(256)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VirtualThreadDispatchBenchmark {
+
+    private static final String SERVICE_NAME = HelloService.class.getName() + "-1.0";
+
+    /**
+     * 服务方法的阻塞时间
+     */
+    private static final long SERVICE_LATENCY_MILLIS = 20;
+
+    @Param({"pool", "virtual"})
+    private String executorMode;
+
+    private NettyRpcClient client;
+
+    private NettyRpcServer server;
+
+    private Thread serverThread;
+
+    private String host;
+
+    private int port;
+
+    @Setup
+    public void setup() throws Exception {
+        LocalServiceCache.addService(SERVICE_NAME, new SlowHelloServiceImpl(), HelloService.class);
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RpcServerProperties serverProperties = new RpcServerProperties();
+        serverProperties.setExecutorMode(executorMode);
+        serverProperties.setExecutorThreads(32);
+        server = new NettyRpcServer(serverProperties);
+        serverThread = new Thread(() -> server.start(port), "rpc-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        host = InetAddress.getLocalHost().getHostAddress();
+
+        RpcClientProperties properties = new RpcClientProperties();
+        properties.setExecutorMode(executorMode);
+        client = new NettyRpcClient(properties);
+        // 等待服务端启动完成
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            try {
+                client.sendRequest(request());
+                break;
+            } catch (RuntimeException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        client.close();
+        server.stop();
+        serverThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Benchmark
+    public Object sayHello() {
+        RpcMessage response = client.sendRequest(request());
+        return ((RpcResponse) response.getBody()).getReturnValue();
+    }
+
+    private RequestMetaData request() {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName(SERVICE_NAME);
+        request.setMethod("sayHello");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameterValues(new Object[]{"liujue"});
+        RpcMessage message = new RpcMessage();
+        message.setMessageHeader(MessageHeader.build("hessian"));
+        message.setBody(request);
+        return RequestMetaData.builder()
+                .rpcMessage(message)
+                .serverAddr(host)
+                .port(port)
+                .timeout(10000)
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(VirtualThreadDispatchBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    public static class SlowHelloServiceImpl implements HelloService {
+
+        @Override
+        public String sayHello(String name) {
+            try {
+                Thread.sleep(SERVICE_LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hello: " + name;
+        }
+    }
+}
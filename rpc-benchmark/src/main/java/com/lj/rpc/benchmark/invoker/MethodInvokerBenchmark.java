@@ -0,0 +1,129 @@
+package com.lj.rpc.benchmark.invoker;
+
+import com.lj.rpc.api.pojo.User;
+import com.lj.rpc.api.service.HelloService;
+import com.lj.rpc.api.service.UserService;
+import com.lj.rpc.core.entity.MethodDescriptor;
+import com.lj.rpc.server.invoker.LambdaMethodInvoker;
+import com.lj.rpc.server.invoker.MethodHandleInvoker;
+import com.lj.rpc.server.invoker.MethodInvoker;
+import com.lj.rpc.server.invoker.ReflectiveMethodInvoker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端方法调用性能对比: 反射调用 vs MethodHandle 调用器 vs LambdaMetafactory 生成的调用器, 直接调用作为基线
+ *
+ * <p>服务实现与 provider 模块中的 HelloServiceImpl/UserServiceImpl 保持一致
+ *
+ * @author liujue
+ * @version 1.0
+ * @since 2024/7/25
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Threads(4)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MethodInvokerBenchmark {
+
+    private final HelloService helloService = new HelloServiceImpl();
+
+    private final UserService userService = new UserService();
+
+    private final Object[] helloArgs = {"liujue"};
+
+    private final Object[] loginArgs = {new User("liujue", "123456", 24)};
+
+    private MethodInvoker reflectiveHello;
+
+    private MethodInvoker handleHello;
+
+    private MethodInvoker lambdaHello;
+
+    private MethodInvoker reflectiveLogin;
+
+    private MethodInvoker handleLogin;
+
+    private MethodInvoker lambdaLogin;
+
+    @Setup
+    public void setup() throws Exception {
+        Method hello = HelloServiceImpl.class.getMethod("sayHello", String.class);
+        MethodDescriptor helloDescriptor = new MethodDescriptor("com.lj.rpc.api.service.HelloService-1.0",
+                "sayHello", hello.getParameterTypes());
+        reflectiveHello = new ReflectiveMethodInvoker(helloDescriptor, helloService, hello);
+        handleHello = new MethodHandleInvoker(helloDescriptor, helloService, hello);
+        lambdaHello = new LambdaMethodInvoker(helloDescriptor, helloService, hello);
+
+        Method login = UserService.class.getMethod("login", User.class);
+        MethodDescriptor loginDescriptor = new MethodDescriptor("com.lj.rpc.api.service.UserService-1.0",
+                "login", login.getParameterTypes());
+        reflectiveLogin = new ReflectiveMethodInvoker(loginDescriptor, userService, login);
+        handleLogin = new MethodHandleInvoker(loginDescriptor, userService, login);
+        lambdaLogin = new LambdaMethodInvoker(loginDescriptor, userService, login);
+    }
+
+    @Benchmark
+    public Object directHello() {
+        return helloService.sayHello((String) helloArgs[0]);
+    }
+
+    @Benchmark
+    public Object reflectiveHello() throws Exception {
+        return reflectiveHello.invoke(helloArgs);
+    }
+
+    @Benchmark
+    public Object methodHandleHello() throws Exception {
+        return handleHello.invoke(helloArgs);
+    }
+
+    @Benchmark
+    public Object lambdaHello() throws Exception {
+        return lambdaHello.invoke(helloArgs);
+    }
+
+    @Benchmark
+    public Object directLogin() {
+        return userService.login((User) loginArgs[0]);
+    }
+
+    @Benchmark
+    public Object reflectiveLogin() throws Exception {
+        return reflectiveLogin.invoke(loginArgs);
+    }
+
+    @Benchmark
+    public Object methodHandleLogin() throws Exception {
+        return handleLogin.invoke(loginArgs);
+    }
+
+    @Benchmark
+    public Object lambdaLogin() throws Exception {
+        return lambdaLogin.invoke(loginArgs);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(MethodInvokerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    public static class HelloServiceImpl implements HelloService {
+
+        @Override
+        public String sayHello(String name) {
+            return "hello: " + name;
+        }
+    }
+}
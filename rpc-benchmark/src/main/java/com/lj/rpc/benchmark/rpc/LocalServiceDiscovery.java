@@ -0,0 +1,43 @@
+package com.lj.rpc.benchmark.rpc;
+
+import com.lj.rpc.core.discovery.ServiceDiscovery;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.ServiceMessage;
+
+/**
+ * 固定地址的服务发现, 所有服务都指向同一个服务端, 压测时无需启动 ZooKeeper 或 Nacos
+ *
+ * @author liujue
+ * @version 1.0
+ * @since 2024/8/3
+ */
+public class LocalServiceDiscovery implements ServiceDiscovery {
+
+    private final String host;
+
+    private final int port;
+
+    public LocalServiceDiscovery(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public ServiceMessage discover(RpcRequest request) {
+        return ServiceMessage.builder()
+                .serviceName(request.getServiceName())
+                .inetAddress(host)
+                .port(port)
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+
+    }
+
+    @Override
+    public boolean checkRetry(String serviceName) {
+        return false;
+    }
+}
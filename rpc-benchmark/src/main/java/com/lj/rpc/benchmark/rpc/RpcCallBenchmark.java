@@ -0,0 +1,201 @@
+package com.lj.rpc.benchmark.rpc;
+
+import com.lj.rpc.client.config.RpcClientProperties;
+import com.lj.rpc.client.proxy.ClientProxyFactory;
+import com.lj.rpc.client.transport.netty.NettyRpcClient;
+import com.lj.rpc.core.util.ServiceUtils;
+import com.lj.rpc.server.cache.LocalServiceCache;
+import com.lj.rpc.server.config.RpcServerProperties;
+import com.lj.rpc.server.transport.netty.NettyRpcServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 完整调用链路的压测: 服务端与客户端在同一进程中通过本机回环地址通信, 服务发现使用固定地址的
+ * {@link LocalServiceDiscovery}, 无需启动注册中心
+ *
+ * <p>调用经过客户端代理、服务发现、编解码与服务端分发, 覆盖以下维度:
+ * <ul>
+ *     <li>payloadSize: 请求与响应的字符串长度, 超过分块大小 (默认 64 KB) 的消息以多个分块帧传输</li>
+ *     <li>serialization: 序列化算法</li>
+ *     <li>并发线程数: 由 JMH 的 -t 参数指定, {@link #main} 依次运行 1, 16, 64 个线程</li>
+ *     <li>sync / async: 同步调用与异步调用, 异步调用每个线程同时发出 {@link #PIPELINE_DEPTH} 个请求</li>
+ * </ul>
+ *
+ * <p>每个响应都与对应的请求比对, 多个请求复用同一连接时响应错配会直接失败。
+ * 吞吐量与延迟分布同时输出, 加上 -prof gc 输出每次调用的内存分配量, 例如:
+ * <pre>
+ * java -cp ... org.openjdk.jmh.Main RpcCallBenchmark -t 16 -p serialization=kryo -prof gc
+ * </pre>
+ *
+ * @author liujue
+ * @version 1.0
+ * @since 2024/8/3
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RpcCallBenchmark {
+
+    /**
+     * 异步调用时每个线程同时发出的请求数
+     */
+    public static final int PIPELINE_DEPTH = 8;
+
+    private static final String VERSION = "1.0";
+
+    @Param({"16", "1024", "16384", "262144"})
+    private int payloadSize;
+
+    @Param({"hessian", "kryo", "protostuff", "json"})
+    private String serialization;
+
+    private EchoService echoService;
+
+    private NettyRpcClient client;
+
+    private NettyRpcServer server;
+
+    private Thread serverThread;
+
+    @Setup
+    public void setup() throws Exception {
+        LocalServiceCache.addService(ServiceUtils.getServiceName(EchoService.class.getName(), VERSION),
+                new EchoServiceImpl(), EchoService.class);
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new NettyRpcServer(new RpcServerProperties());
+        serverThread = new Thread(() -> server.start(port), "rpc-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        String host = InetAddress.getLocalHost().getHostAddress();
+
+        RpcClientProperties properties = new RpcClientProperties();
+        properties.setSerialization(serialization);
+        client = new NettyRpcClient(properties);
+        echoService = new ClientProxyFactory(new LocalServiceDiscovery(host, port), client, properties)
+                .getProxy(EchoService.class, VERSION);
+        // 等待服务端启动完成
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            try {
+                echoService.echo("ping");
+                break;
+            } catch (RuntimeException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        client.close();
+        server.stop();
+        serverThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Benchmark
+    public String sync(Payloads payloads) {
+        String payload = payloads.values[0];
+        return check(payload, echoService.echo(payload));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE_DEPTH)
+    public void async(Payloads payloads, Blackhole blackhole) {
+        CompletableFuture<String>[] futures = payloads.futures;
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            futures[i] = echoService.echoAsync(payloads.values[i]);
+        }
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            blackhole.consume(check(payloads.values[i], futures[i].join()));
+        }
+    }
+
+    private static String check(String payload, String result) {
+        if (!payload.equals(result)) {
+            throw new IllegalStateException("The response does not match its request.");
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 16, 64}) {
+            Options opt = new OptionsBuilder()
+                    .include(RpcCallBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("rpc-call-" + threads + "-threads.json")
+                    .build();
+            new Runner(opt).run();
+        }
+    }
+
+    /**
+     * 每个线程使用的请求内容, 以线程与请求序号开头, 保证各不相同
+     */
+    @State(Scope.Thread)
+    public static class Payloads {
+
+        private static final AtomicInteger THREAD_IDS = new AtomicInteger();
+
+        private final String[] values = new String[PIPELINE_DEPTH];
+
+        @SuppressWarnings("unchecked")
+        private final CompletableFuture<String>[] futures = new CompletableFuture[PIPELINE_DEPTH];
+
+        @Setup
+        public void setup(RpcCallBenchmark benchmark) {
+            int threadId = THREAD_IDS.getAndIncrement();
+            for (int i = 0; i < PIPELINE_DEPTH; i++) {
+                StringBuilder builder = new StringBuilder(benchmark.payloadSize)
+                        .append(threadId).append('-').append(i).append(':');
+                while (builder.length() < benchmark.payloadSize) {
+                    builder.append('x');
+                }
+                values[i] = builder.toString();
+            }
+        }
+    }
+
+    public interface EchoService {
+
+        String echo(String payload);
+
+        CompletableFuture<String> echoAsync(String payload);
+    }
+
+    public static class EchoServiceImpl implements EchoService {
+
+        @Override
+        public String echo(String payload) {
+            return payload;
+        }
+
+        @Override
+        public CompletableFuture<String> echoAsync(String payload) {
+            return CompletableFuture.completedFuture(payload);
+        }
+    }
+}
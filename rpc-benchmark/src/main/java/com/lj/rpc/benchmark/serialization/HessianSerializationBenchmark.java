@@ -0,0 +1,78 @@
+package com.lj.rpc.benchmark.serialization;
+
+import com.lj.rpc.api.pojo.User;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.serialization.hessian.HessianSerialization;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hessian 序列化性能对比: 改造前的实现 vs 共享 SerializerFactory + 线程复用 Hessian2Output/Input 的实现
+ *
+ * <p>每次操作包含一次请求体的序列化与反序列化
+ *
+ * @author liujue
+ * @version 1.0
+ * @since 2024/7/21
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Threads(4)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HessianSerializationBenchmark {
+
+    private final LegacyHessianSerialization legacy = new LegacyHessianSerialization();
+
+    private final HessianSerialization hessian2 = new HessianSerialization();
+
+    private RpcRequest request;
+
+    @Setup
+    public void setup() {
+        request = new RpcRequest();
+        request.setServiceName("com.lj.rpc.api.service.UserService-1.0");
+        request.setMethod("addUser");
+        request.setParameterTypes(new Class<?>[]{User.class});
+        request.setParameterValues(new Object[]{new User("liujue", "123456", 24)});
+        System.out.printf("legacy body: %d bytes, hessian2 body: %d bytes%n",
+                legacy.serialize(request).length, hessian2.serialize(request).length);
+    }
+
+    @Benchmark
+    public RpcRequest legacyRoundTrip() {
+        return legacy.deserialize(RpcRequest.class, legacy.serialize(request));
+    }
+
+    @Benchmark
+    public RpcRequest hessian2RoundTrip() {
+        return hessian2.deserialize(RpcRequest.class, hessian2.serialize(request));
+    }
+
+    @Benchmark
+    public RpcRequest hessian2ByteBufRoundTrip() {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            hessian2.serialize(request, buf);
+            return hessian2.deserialize(RpcRequest.class, buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HessianSerializationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
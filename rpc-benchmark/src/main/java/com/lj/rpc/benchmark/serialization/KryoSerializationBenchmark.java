@@ -0,0 +1,91 @@
+package com.lj.rpc.benchmark.serialization;
+
+import com.lj.rpc.api.pojo.User;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.serialization.kryo.KryoSerialization;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kryo 序列化性能对比: 改造前的实现 vs 对象池 + 线程复用缓冲区的实现
+ *
+ * <p>每次操作包含一次请求体的序列化与反序列化
+ *
+ * @author liujue
+ * @version 1.0
+ * @since 2024/7/20
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Threads(4)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class KryoSerializationBenchmark {
+
+    private final LegacyKryoSerialization legacy = new LegacyKryoSerialization();
+
+    private final KryoSerialization pooled = new KryoSerialization();
+
+    private RpcRequest request;
+
+    @Setup
+    public void setup() {
+        pooled.configure(Collections.singletonList(User.class), false);
+        request = new RpcRequest();
+        request.setServiceName("com.lj.rpc.api.service.UserService-1.0");
+        request.setMethod("addUser");
+        request.setParameterTypes(new Class<?>[]{User.class});
+        request.setParameterValues(new Object[]{new User("liujue", "123456", 24)});
+        System.out.printf("legacy body: %d bytes, pooled body: %d bytes%n",
+                legacy.serialize(request).length, pooled.serialize(request).length);
+    }
+
+    @Benchmark
+    public RpcRequest legacyRoundTrip() {
+        return legacy.deserialize(RpcRequest.class, legacy.serialize(request));
+    }
+
+    @Benchmark
+    public RpcRequest pooledRoundTrip() {
+        return pooled.deserialize(RpcRequest.class, pooled.serialize(request));
+    }
+
+    @Benchmark
+    public RpcRequest pooledByteBufRoundTrip() {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+        try {
+            pooled.serialize(request, buf);
+            return pooled.deserialize(RpcRequest.class, buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Benchmark
+    public RpcRequest pooledHeapByteBufRoundTrip() {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            pooled.serialize(request, buf);
+            return pooled.deserialize(RpcRequest.class, buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(KryoSerializationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+}
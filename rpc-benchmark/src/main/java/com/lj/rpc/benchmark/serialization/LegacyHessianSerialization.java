@@ -0,0 +1,42 @@
+package com.lj.rpc.benchmark.serialization;
+
+import com.caucho.hessian.io.HessianSerializerInput;
+import com.caucho.hessian.io.HessianSerializerOutput;
+import com.lj.rpc.core.exception.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 改造前的 Hessian 序列化实现, 仅作为基准测试的对照组保留
+ *
+ * <p>原实现中 HessianSerializerOutput 没有绑定到 bos 上 (序列化结果为空), 这里补上绑定,
+ * 其余保持原样: 每次调用都新建 HessianSerializerOutput/Input (及其内部缓冲区) 和默认的 SerializerFactory
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/1/28 23:14
+ */
+public class LegacyHessianSerialization {
+
+    public <T> byte[] serialize(T object) {
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            HessianSerializerOutput hso = new HessianSerializerOutput(bos);
+            hso.writeObject(object);
+            hso.flush();
+            return bos.toByteArray();
+        } catch (Exception e) {
+            throw new SerializationException("Hessian serialize failed.", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T deserialize(Class<T> clazz, byte[] bytes) {
+        try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes)) {
+            HessianSerializerInput hsi = new HessianSerializerInput(bis);
+            return (T) hsi.readObject();
+        } catch (Exception e) {
+            throw new SerializationException("Hessian deserialize failed.", e);
+        }
+    }
+}
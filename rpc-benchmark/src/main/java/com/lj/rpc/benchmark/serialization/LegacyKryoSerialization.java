@@ -0,0 +1,60 @@
+package com.lj.rpc.benchmark.serialization;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.exception.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * 改造前的 Kryo 序列化实现, 仅作为基准测试的对照组保留
+ *
+ * <p>每次调用都会新建 Output/Input, 并在调用结束后 remove 掉 ThreadLocal 中的 Kryo 实例
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/1/28 23:21
+ */
+public class LegacyKryoSerialization {
+
+    /**
+     * 因为 Kryo 不是线程安全的, 因此这里使用 ThreadLocal 来保存 Kryo 对象；
+     * 也可以通过构造 Kryo 对象池的方式解决线程安全问题
+     */
+    private final ThreadLocal<Kryo> kryoThreadLocal = ThreadLocal.withInitial(() -> {
+        Kryo kryo = new Kryo();
+        kryo.register(RpcResponse.class);
+        kryo.register(RpcRequest.class);
+        return kryo;
+    });
+
+    public <T> byte[] serialize(T object) {
+        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+             Output output = new Output(byteArrayOutputStream)) {
+            Kryo kryo = kryoThreadLocal.get();
+            // object -> byte[]
+            kryo.writeObject(output, object);
+            kryoThreadLocal.remove();
+            return output.toBytes();
+        } catch (Exception e) {
+            throw new SerializationException("Kryo serialize failed.", e);
+        }
+    }
+
+    public <T> T deserialize(Class<T> clazz, byte[] bytes) {
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
+             Input input = new Input(byteArrayInputStream)) {
+            Kryo kryo = kryoThreadLocal.get();
+            // byte[] -> object
+            T object = kryo.readObject(input, clazz);
+            kryoThreadLocal.remove();
+            return object;
+        } catch (Exception e) {
+            throw new SerializationException("Kryo deserialize failed.", e);
+        }
+    }
+}
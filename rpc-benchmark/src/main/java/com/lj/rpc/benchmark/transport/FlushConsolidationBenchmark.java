@@ -0,0 +1,155 @@
+package com.lj.rpc.benchmark.transport;
+
+import com.lj.rpc.api.service.HelloService;
+import com.lj.rpc.client.config.RpcClientProperties;
+import com.lj.rpc.client.entity.RequestMetaData;
+import com.lj.rpc.client.transport.netty.NettyRpcClient;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.protocol.MessageHeader;
+import com.lj.rpc.core.protocol.RpcMessage;
+import com.lj.rpc.server.cache.LocalServiceCache;
+import com.lj.rpc.server.config.RpcServerProperties;
+import com.lj.rpc.server.transport.netty.NettyRpcServer;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 合并 flush 的效果: 大量线程通过同一条连接并发发起小请求, 对比每个请求单独 flush 与合并 flush 的吞吐量
+ *
+ * <p>客户端与服务端在同一进程中通过本机回环地址通信, 两端使用相同的 flushConsolidationLimit;
+ * 结束时输出客户端每次调用实际写入 socket 的 flush 次数, 即 write 系统调用次数的近似值
+ *
+ * @author liujue
+ * @version 1.0
+ * @since 2024/7/30
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS)
+@Threads(64)
+@Fork(1)
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FlushConsolidationBenchmark {
+
+    private static final String SERVICE_NAME = HelloService.class.getName() + "-1.0";
+
+    @Param({"0", "64"})
+    private int flushConsolidationLimit;
+
+    private NettyRpcClient client;
+
+    private NettyRpcServer server;
+
+    private Thread serverThread;
+
+    private String host;
+
+    private int port;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder flushes = new LongAdder();
+
+    @Setup
+    public void setup() throws Exception {
+        LocalServiceCache.addService(SERVICE_NAME, new HelloServiceImpl(), HelloService.class);
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RpcServerProperties serverProperties = new RpcServerProperties();
+        serverProperties.setFlushConsolidationLimit(flushConsolidationLimit);
+        server = new NettyRpcServer(serverProperties);
+        serverThread = new Thread(() -> server.start(port), "rpc-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        host = InetAddress.getLocalHost().getHostAddress();
+
+        RpcClientProperties properties = new RpcClientProperties();
+        properties.setFlushConsolidationLimit(flushConsolidationLimit);
+        client = new NettyRpcClient(properties);
+        // 等待服务端启动完成
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            try {
+                client.sendRequest(request());
+                break;
+            } catch (RuntimeException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(200);
+            }
+        }
+        // 统计真正到达 socket 的 flush 次数, 放在 pipeline 最靠近 socket 的位置
+        Channel channel = client.getChannel(new InetSocketAddress(host, port));
+        channel.pipeline().addFirst(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void flush(ChannelHandlerContext ctx) {
+                flushes.increment();
+                ctx.flush();
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        System.out.printf("%nflushConsolidationLimit=%d, client socket flushes per call: %.3f%n",
+                flushConsolidationLimit, flushes.doubleValue() / Math.max(1, calls.sum()));
+        client.close();
+        server.stop();
+        serverThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Benchmark
+    public Object sayHello() {
+        calls.increment();
+        RpcMessage response = client.sendRequest(request());
+        return ((RpcResponse) response.getBody()).getReturnValue();
+    }
+
+    private RequestMetaData request() {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName(SERVICE_NAME);
+        request.setMethod("sayHello");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameterValues(new Object[]{"liujue"});
+        RpcMessage message = new RpcMessage();
+        message.setMessageHeader(MessageHeader.build("hessian"));
+        message.setBody(request);
+        return RequestMetaData.builder()
+                .rpcMessage(message)
+                .serverAddr(host)
+                .port(port)
+                .timeout(5000)
+                .build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(FlushConsolidationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(opt).run();
+    }
+
+    public static class HelloServiceImpl implements HelloService {
+
+        @Override
+        public String sayHello(String name) {
+            return "hello: " + name;
+        }
+    }
+}
@@ -30,4 +30,10 @@ public @interface RpcReference {
      */
     String version() default "1.0";
 
+    /**
+     * 该引用上所有方法的调用超时时间, 单位毫秒, 默认 0 表示使用全局配置 rpc.client.timeout;
+     * 优先级低于 rpc.client.method-timeouts 中针对单个方法的配置
+     */
+    int timeout() default 0;
+
 }
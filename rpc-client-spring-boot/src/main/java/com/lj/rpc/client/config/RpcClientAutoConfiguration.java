@@ -8,10 +8,13 @@ import com.lj.rpc.client.transport.netty.NettyRpcClient;
 import com.lj.rpc.core.discovery.ServiceDiscovery;
 import com.lj.rpc.core.discovery.nacos.NacosServiceDiscovery;
 import com.lj.rpc.core.discovery.zookeeper.ZookeeperServiceDiscovery;
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.factory.SerializationFactory;
 import com.lj.rpc.core.loadbalance.LoadBalance;
 import com.lj.rpc.core.loadbalance.impl.ConsistentHashLoadBalance;
 import com.lj.rpc.core.loadbalance.impl.RandomLoadBalance;
 import com.lj.rpc.core.loadbalance.impl.RoundRobinLoadBalance;
+import com.lj.rpc.core.serialization.kryo.KryoSerialization;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -83,14 +86,17 @@ public class RpcClientAutoConfiguration {
     }
 
     /**
-     * 创建 RpcClient 的实体类 bean, 没有显式配置时默认使用 netty
+     * 创建 RpcClient 的实体类 bean, netty/epoll/nio 三种传输方式均由 NettyRpcClient 实现
      */
     @Bean(name = "rpcClient")
     @Primary
     @ConditionalOnMissingBean
-    @ConditionalOnProperty(prefix = "rpc.client", name = "transport", havingValue = "netty", matchIfMissing = true)
+    @ConditionalOnProperty(prefix = "rpc.client", name = "transport", matchIfMissing = true)
     public RpcClient nettyRpcClient() {
-        return new NettyRpcClient();
+        // 在建立连接之前完成序列化算法的配置
+        KryoSerialization kryo = (KryoSerialization) SerializationFactory.getSerialization(SerializerType.KRYO);
+        kryo.configure(rpcClientProperties.getKryoRegistrations(), rpcClientProperties.getKryoRegistrationRequired());
+        return new NettyRpcClient(rpcClientProperties);
     }
 
     /**
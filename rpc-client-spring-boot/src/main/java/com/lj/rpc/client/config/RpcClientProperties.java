@@ -1,8 +1,14 @@
 package com.lj.rpc.client.config;
 
+import com.lj.rpc.core.constant.ProtocolConstants;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * RPC 客户端相关参数类
  *
@@ -23,7 +29,7 @@ public class RpcClientProperties {
     private String serialization;
 
     /**
-     * 网络传输方式, 包括: netty, 其中默认值为 netty
+     * 网络传输方式, 包括: netty (epoll 可用时使用 epoll, 否则使用 nio), epoll, nio, 其中默认值为 netty
      */
     private String transport;
 
@@ -38,10 +44,86 @@ public class RpcClientProperties {
     private String registryAddr;
 
     /**
-     * 连接超时时间, 单位毫秒, 默认值为 5000
+     * 调用超时时间, 单位毫秒, 默认值为 5000
      */
     private Integer timeout;
 
+    /**
+     * 建立连接的超时时间, 单位毫秒, 默认值为 3000
+     */
+    private Integer connectTimeout;
+
+    /**
+     * 连接失败后第一次重连的退避时间, 单位毫秒, 之后每次失败翻倍, 默认值为 100
+     */
+    private Long reconnectInitialBackoff;
+
+    /**
+     * 重连退避时间上限, 单位毫秒, 默认值为 10000
+     */
+    private Long reconnectMaxBackoff;
+
+    /**
+     * 每个服务端地址建立的连接数, 调用时选择未完成调用数最少的连接, 默认值为 1
+     */
+    private Integer connectionsPerAddress;
+
+    /**
+     * 单帧最大长度 (含协议头), 超过时连接上抛出 TooLongFrameException, 需大于对端的分块大小, 默认值为 1 MB
+     */
+    private Integer maxFrameLength;
+
+    /**
+     * 分块大小, 正文超过该长度的消息拆分为多个分块帧发送, 0 表示不分块, 默认值为 64 KB
+     */
+    private Integer chunkSize;
+
+    /**
+     * 消息正文的最大长度, 接收时为分块消息重组后 (以及压缩消息解压后) 的长度; 超过该长度的消息在发送前即失败, 默认值为 64 MB
+     */
+    private Integer maxMessageLength;
+
+    /**
+     * 发送请求使用的压缩算法, 可选: none, deflate 以及扩展文件中自定义的算法, 默认值为 none;
+     * 对端根据协议头中的压缩方式解压, 两端无需配置相同的值
+     */
+    private String compress;
+
+    /**
+     * 压缩阈值, 正文超过该长度 (字节) 时才压缩, 默认值为 4096
+     */
+    private Integer compressThreshold;
+
+    /**
+     * 合并 flush 的最大消息数: 同一轮事件循环中写出的请求合并为一次 flush (系统调用),
+     * 累计达到该数量时立即 flush; 0 表示关闭, 每个请求单独 flush, 默认值为 0
+     */
+    private Integer flushConsolidationLimit;
+
+    /**
+     * 异步调用回调的执行方式, 可选: pool (线程池), virtual (每个回调一个虚拟线程, 需要 JDK 21 及以上版本,
+     * 否则退回 pool), 默认值为 pool; 同步调用在调用方线程中等待, 调用方为虚拟线程时等待期间不占用载体线程
+     */
+    private String executorMode;
+
+    /**
+     * 方法级别的调用超时时间, 单位毫秒, key 为 接口全限定名#方法名, 例如:
+     * rpc.client.method-timeouts[com.lj.rpc.api.service.HelloService#sayHello]=1000,
+     * 优先级高于 {@code @RpcReference(timeout)} 与全局的 timeout
+     */
+    private Map<String, Integer> methodTimeouts;
+
+    /**
+     * Kryo 序列化额外注册的类型 (如服务接口中的 POJO), 按顺序分配紧凑的类型编号,
+     * 客户端与服务端必须配置相同的列表; 同一进程同时作为客户端与服务端时, 两端的配置也必须相同, 否则启动失败
+     */
+    private List<Class<?>> kryoRegistrations;
+
+    /**
+     * Kryo 是否开启严格模式 (registrationRequired), 默认值为 false
+     */
+    private Boolean kryoRegistrationRequired;
+
     public RpcClientProperties() {
         this.loadBalance = "roundRobin";
         this.serialization = "hessian";
@@ -49,5 +131,19 @@ public class RpcClientProperties {
         this.registry = "zookeeper";
         this.registryAddr = "127.0.0.1:2181";
         this.timeout = 5000;
+        this.connectTimeout = 3000;
+        this.reconnectInitialBackoff = 100L;
+        this.reconnectMaxBackoff = 10000L;
+        this.connectionsPerAddress = 1;
+        this.maxFrameLength = ProtocolConstants.DEFAULT_MAX_FRAME_LENGTH;
+        this.chunkSize = ProtocolConstants.DEFAULT_CHUNK_SIZE;
+        this.maxMessageLength = ProtocolConstants.DEFAULT_MAX_MESSAGE_LENGTH;
+        this.compress = "none";
+        this.compressThreshold = ProtocolConstants.DEFAULT_COMPRESS_THRESHOLD;
+        this.flushConsolidationLimit = 0;
+        this.executorMode = "pool";
+        this.methodTimeouts = new HashMap<>();
+        this.kryoRegistrations = new ArrayList<>();
+        this.kryoRegistrationRequired = false;
     }
 }
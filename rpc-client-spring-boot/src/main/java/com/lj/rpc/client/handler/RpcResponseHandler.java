@@ -1,9 +1,13 @@
 package com.lj.rpc.client.handler;
 
+import com.lj.rpc.client.transport.netty.PendingCalls;
+import com.lj.rpc.core.codec.InvocationTable;
+import com.lj.rpc.core.entity.MethodDescriptor;
 import com.lj.rpc.core.entity.RpcResponse;
 import com.lj.rpc.core.constant.ProtocolConstants;
 import com.lj.rpc.core.enums.MessageType;
 import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.exception.RpcException;
 import com.lj.rpc.core.protocol.MessageHeader;
 import com.lj.rpc.core.protocol.RpcMessage;
 import io.netty.channel.ChannelFutureListener;
@@ -13,11 +17,9 @@ import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.ReferenceCountUtil;
-import io.netty.util.concurrent.Promise;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * RPC 响应消息处理器
@@ -34,11 +36,6 @@ import java.util.concurrent.ConcurrentHashMap;
 @ChannelHandler.Sharable
 public class RpcResponseHandler extends SimpleChannelInboundHandler<RpcMessage> {
 
-    /**
-     * 存放未处理的响应请求
-     */
-    public static final Map<Integer, Promise<RpcMessage>> UNPROCESSED_RPC_RESPONSES = new ConcurrentHashMap<>();
-
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RpcMessage msg) {
         try {
@@ -46,17 +43,22 @@ public class RpcResponseHandler extends SimpleChannelInboundHandler<RpcMessage>
             // 如果是 RPC 响应消息
             if (messageType == MessageType.RESPONSE) {
                 int sequenceId = msg.getMessageHeader().getSequenceId();
-                // 拿到还未执行完成的 promise 对象
-                Promise<RpcMessage> promise = UNPROCESSED_RPC_RESPONSES.remove(sequenceId);
-                if (promise != null) {
+                // 从连接的未完成调用表中拿到还未执行完成的 future 对象
+                CompletableFuture<RpcMessage> future = PendingCalls.get(ctx.channel()).remove(sequenceId);
+                if (future != null) {
                     RpcResponse response = (RpcResponse) msg.getBody();
                     Exception exceptionValue = response.getExceptionValue();
                     if (exceptionValue == null) {
-                        promise.setSuccess(msg);
+                        future.complete(msg);
                     } else {
-                        promise.setFailure(exceptionValue);
+                        future.completeExceptionally(exceptionValue);
                     }
                 }
+            } else if (messageType == MessageType.HANDSHAKE_RESPONSE) {  // 如果是握手响应
+                // 记录服务端的方法表, 之后对这些方法只发送全局编号
+                MethodDescriptor[] descriptors = (MethodDescriptor[]) msg.getBody();
+                InvocationTable.get(ctx.channel()).setRemote(descriptors);
+                log.debug("Handshake completed, {} remote methods.", descriptors.length);
             } else if (messageType == MessageType.HEARTBEAT_RESPONSE) {  // 如果是心跳检查响应
                 log.debug("Heartbeat info {}.", msg.getBody());
             }
@@ -66,6 +68,35 @@ public class RpcResponseHandler extends SimpleChannelInboundHandler<RpcMessage>
         }
     }
 
+    /**
+     * 连接断开时, 该连接上所有未完成的调用立即失败
+     *
+     * @param ctx ctx
+     */
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        PendingCalls.get(ctx.channel()).failAll(new RpcException(String.format(
+                "The connection to [%s] has been closed.", ctx.channel().remoteAddress())));
+        ctx.fireChannelInactive();
+    }
+
+    /**
+     * 连接建立后立即发送握手请求, 获取服务端的方法编号表
+     *
+     * <p>握手完成之前的请求仍然可以正常发送, 只是使用连接级别的方法编号
+     *
+     * @param ctx ctx
+     */
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        RpcMessage handshakeMessage = new RpcMessage();
+        MessageHeader header = MessageHeader.build(SerializerType.HESSIAN.name());
+        header.setMessageType(MessageType.HANDSHAKE_REQUEST.getType());
+        handshakeMessage.setMessageHeader(header);
+        ctx.writeAndFlush(handshakeMessage).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+        ctx.fireChannelActive();
+    }
+
     /**
      * 用户自定义事件处理器
      * 处理写空闲: 客户端定时心跳, 当检测到写空闲立即发送一个心跳检测数据包
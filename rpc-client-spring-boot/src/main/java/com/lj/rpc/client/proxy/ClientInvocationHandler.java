@@ -6,6 +6,8 @@ import com.lj.rpc.core.discovery.ServiceDiscovery;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于 JDK 动态代理机制实现的客户端方法调用类
@@ -36,19 +38,35 @@ public class ClientInvocationHandler implements InvocationHandler {
      */
     private final RpcClientProperties properties;
 
+    /**
+     * {@code @RpcReference} 上配置的超时时间, 不大于 0 时使用全局配置
+     */
+    private final int referenceTimeout;
+
+    /**
+     * 各方法最终生效的超时时间
+     */
+    private final Map<Method, Integer> timeouts = new ConcurrentHashMap<>();
+
     public ClientInvocationHandler(ServiceDiscovery serviceDiscovery,
                                    RpcClient rpcClient,
                                    String serviceName,
-                                   RpcClientProperties properties) {
+                                   RpcClientProperties properties,
+                                   int referenceTimeout) {
         this.serviceDiscovery = serviceDiscovery;
         this.rpcClient = rpcClient;
         this.serviceName = serviceName;
         this.properties = properties;
+        this.referenceTimeout = referenceTimeout;
     }
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) {
         // 当我们的动态代理对象调用原生方法的时候，最终实际上调用到的是 invoke() 方法，然后 invoke() 方法代替我们去调用了被代理对象的原生方法
-        return RemoteMethodCall.remoteCall(serviceName, method, args, serviceDiscovery, rpcClient, properties);
+        // 返回值类型为 CompletableFuture 的方法会立即返回 future, 不阻塞调用线程
+        int timeout = timeouts.computeIfAbsent(method,
+                m -> RemoteMethodCall.resolveTimeout(m, referenceTimeout, properties));
+        return RemoteMethodCall.remoteCall(serviceName, method, args, serviceDiscovery, rpcClient, properties,
+                timeout);
     }
 }
@@ -7,6 +7,8 @@ import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于 CGLIB 实现动态代理机制
@@ -37,21 +39,38 @@ public class ClientMethodInterceptor implements MethodInterceptor {
      */
     private final RpcClientProperties properties;
 
+    /**
+     * {@code @RpcReference} 上配置的超时时间, 不大于 0 时使用全局配置
+     */
+    private final int referenceTimeout;
+
+    /**
+     * 各方法最终生效的超时时间
+     */
+    private final Map<Method, Integer> timeouts = new ConcurrentHashMap<>();
+
     public ClientMethodInterceptor(ServiceDiscovery serviceDiscovery,
                                    RpcClient rpcClient,
                                    String serviceName,
-                                   RpcClientProperties properties) {
+                                   RpcClientProperties properties,
+                                   int referenceTimeout) {
         this.serviceDiscovery = serviceDiscovery;
         this.rpcClient = rpcClient;
         this.serviceName = serviceName;
         this.properties = properties;
+        this.referenceTimeout = referenceTimeout;
     }
 
     /**
      * 拦截增强被代理类的方法, 作用和 invoke() 方法类似
+     *
+     * <p>返回值类型为 CompletableFuture 的方法会立即返回 future, 不阻塞调用线程
      */
     @Override
     public Object intercept(Object o, Method method, Object[] objects, MethodProxy methodProxy) {
-        return RemoteMethodCall.remoteCall(serviceName, method, objects, serviceDiscovery, rpcClient, properties);
+        int timeout = timeouts.computeIfAbsent(method,
+                m -> RemoteMethodCall.resolveTimeout(m, referenceTimeout, properties));
+        return RemoteMethodCall.remoteCall(serviceName, method, objects, serviceDiscovery, rpcClient, properties,
+                timeout);
     }
 }
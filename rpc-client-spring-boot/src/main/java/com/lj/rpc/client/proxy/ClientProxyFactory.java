@@ -3,10 +3,13 @@ package com.lj.rpc.client.proxy;
 import com.lj.rpc.client.config.RpcClientProperties;
 import com.lj.rpc.client.transport.RpcClient;
 import com.lj.rpc.core.discovery.ServiceDiscovery;
+import com.lj.rpc.core.entity.ServiceMessage;
 import com.lj.rpc.core.util.ServiceUtils;
+import lombok.extern.slf4j.Slf4j;
 import net.sf.cglib.proxy.Enhancer;
 
 import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -17,10 +20,16 @@ import java.util.concurrent.ConcurrentHashMap;
  * 为了提高通用性(JDK 不支持代理未实现接口的类), 根据目标类的类型来选择不同的代理模式来得到代理对象
  * </p>
  *
+ * <p>
+ * 第一次创建某个服务的代理对象时, 从服务发现中心取出该服务的全部提供者并预热到这些地址的连接,
+ * 连接在后台建立, 不阻塞代理对象的创建; 之后上线的提供者在第一次被调用时建立连接
+ * </p>
+ *
  * @author liujue
  * @version 1.0
  * @date 2024/1/27 17:12
  */
+@Slf4j
 public class ClientProxyFactory {
 
     /**
@@ -39,7 +48,7 @@ public class ClientProxyFactory {
     private final RpcClientProperties rpcClientProperties;
 
     /**
-     * 本地缓存代理对象, key: 服务名; value: 代理对象
+     * 本地缓存代理对象, key: 服务名#超时时间; value: 代理对象
      */
     private static final Map<String, Object> CLIENT_PROXY_CACHE = new ConcurrentHashMap<>();
 
@@ -59,23 +68,65 @@ public class ClientProxyFactory {
      * @param <T>     代理对象的参数类型
      * @return 代理对象
      */
-    @SuppressWarnings("unchecked")
     public <T> T getProxy(Class<T> clazz, String version) {
-        return (T) CLIENT_PROXY_CACHE.computeIfAbsent(ServiceUtils.getServiceName(clazz.getName(), version),
-                serviceName -> {
-            // 如果目标类是一个接口或者 是 java.lang.reflect.Proxy 的子类 则使用 JDK 动态代理
-            if (clazz.isInterface() || Proxy.isProxyClass(clazz)) {
-                return Proxy.newProxyInstance(clazz.getClassLoader(),
-                        new Class[]{clazz},
-                        new ClientInvocationHandler(serviceDiscovery, rpcClient, serviceName, rpcClientProperties));
-            } else { // 否则使用 CGLIB 动态代理
-                Enhancer enhancer = new Enhancer();
-                enhancer.setClassLoader(clazz.getClassLoader());
-                enhancer.setSuperclass(clazz);
-                enhancer.setCallback(
-                        new ClientMethodInterceptor(serviceDiscovery, rpcClient, serviceName, rpcClientProperties));
-                return enhancer.create();
+        return getProxy(clazz, version, 0);
+    }
+
+    /**
+     * 根据目标类的类型来选择不同的代理模式
+     *
+     * @param clazz   服务接口类型
+     * @param version 版本号
+     * @param timeout 该引用的调用超时时间, 单位毫秒, 不大于 0 时使用全局配置
+     * @param <T>     代理对象的参数类型
+     * @return 代理对象
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getProxy(Class<T> clazz, String version, int timeout) {
+        String serviceName = ServiceUtils.getServiceName(clazz.getName(), version);
+        // 超时时间不同的引用使用不同的代理对象
+        String key = serviceName + "#" + timeout;
+        Object proxy = CLIENT_PROXY_CACHE.get(key);
+        if (proxy == null) {
+            Object created = createProxy(clazz, serviceName, timeout);
+            proxy = CLIENT_PROXY_CACHE.putIfAbsent(key, created);
+            if (proxy == null) {
+                proxy = created;
+                // 在映射之外访问服务发现中心, 不在 ConcurrentHashMap 的更新中执行网络调用
+                warmUp(serviceName);
+            }
+        }
+        return (T) proxy;
+    }
+
+    private Object createProxy(Class<?> clazz, String serviceName, int timeout) {
+        // 如果目标类是一个接口或者 是 java.lang.reflect.Proxy 的子类 则使用 JDK 动态代理
+        if (clazz.isInterface() || Proxy.isProxyClass(clazz)) {
+            return Proxy.newProxyInstance(clazz.getClassLoader(),
+                    new Class[]{clazz},
+                    new ClientInvocationHandler(serviceDiscovery, rpcClient, serviceName, rpcClientProperties,
+                            timeout));
+        } else { // 否则使用 CGLIB 动态代理
+            Enhancer enhancer = new Enhancer();
+            enhancer.setClassLoader(clazz.getClassLoader());
+            enhancer.setSuperclass(clazz);
+            enhancer.setCallback(
+                    new ClientMethodInterceptor(serviceDiscovery, rpcClient, serviceName, rpcClientProperties,
+                            timeout));
+            return enhancer.create();
+        }
+    }
+
+    /**
+     * 预热到服务全部提供者的连接; 失败时只打印告警, 第一次调用时再建立连接
+     */
+    private void warmUp(String serviceName) {
+        try {
+            for (ServiceMessage service : serviceDiscovery.getAllServices(serviceName)) {
+                rpcClient.warmUp(new InetSocketAddress(service.getInetAddress(), service.getPort()));
             }
-        });
+        } catch (Exception e) {
+            log.warn("Failed to warm up the connections of service [{}].", serviceName, e);
+        }
     }
 }
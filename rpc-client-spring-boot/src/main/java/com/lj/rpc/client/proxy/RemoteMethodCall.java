@@ -15,6 +15,8 @@ import com.lj.rpc.core.protocol.MessageHeader;
 import com.lj.rpc.core.protocol.RpcMessage;
 
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 远程方法调用工具类
@@ -36,16 +38,95 @@ public class RemoteMethodCall {
     /**
      * 发起 RPC 远程方法调用的公共方法
      *
+     * <p>返回值类型为 {@link CompletableFuture} 的方法以异步方式调用: 立即返回 future, 不阻塞调用线程,
+     * 远程调用的返回值与异常都通过 future 传递
+     *
      * @param serviceName      服务名称
      * @param method           调用的方法
      * @param args             方法参数
      * @param serviceDiscovery 服务发现中心
      * @param client           发起调用的客户端
+     * @param timeout          调用超时时间, 单位毫秒, 见 {@link #resolveTimeout(Method, int, RpcClientProperties)}
      * @return 方法调用返回结果
      */
     public static Object remoteCall(String serviceName, Method method, Object[] args,
                                     ServiceDiscovery serviceDiscovery, RpcClient client,
-                                    RpcClientProperties properties) {
+                                    RpcClientProperties properties, int timeout) {
+        if (isAsync(method)) {
+            return remoteCallAsync(serviceName, method, args, serviceDiscovery, client, properties, timeout);
+        }
+        RequestMetaData requestMetaData =
+                buildRequest(serviceName, method, args, serviceDiscovery, properties, timeout);
+
+        // 4. 网络传输, 发送请求
+        RpcMessage responseRpcMessage;
+        // 4.1 正常发送
+        responseRpcMessage = client.sendRequest(requestMetaData);
+        // NOTE: 4.2 失败重试
+        // if (responseRpcMessage == null && serviceDiscovery.checkRetry(serviceName)) {
+        //     responseRpcMessage = new FailureRetry().retry(requestMetaData, client);
+        // }
+
+        return getReturnValue(responseRpcMessage);
+    }
+
+    /**
+     * 以异步方式发起 RPC 远程方法调用
+     *
+     * @return 在远程调用完成时完成的 future, 其回调在客户端的回调线程池中执行
+     */
+    private static CompletableFuture<Object> remoteCallAsync(String serviceName, Method method, Object[] args,
+                                                             ServiceDiscovery serviceDiscovery, RpcClient client,
+                                                             RpcClientProperties properties, int timeout) {
+        RequestMetaData requestMetaData;
+        try {
+            requestMetaData = buildRequest(serviceName, method, args, serviceDiscovery, properties, timeout);
+        } catch (RuntimeException e) {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+        return client.sendRequestAsync(requestMetaData).thenApply(RemoteMethodCall::getReturnValue);
+    }
+
+    /**
+     * 计算方法的调用超时时间, 优先级: rpc.client.method-timeouts > {@code @RpcReference(timeout)} > rpc.client.timeout
+     *
+     * @param method           调用的方法
+     * @param referenceTimeout 引用上配置的超时时间, 不大于 0 表示未配置
+     * @param properties       客户端配置
+     * @return 超时时间, 单位毫秒, 不大于 0 表示不超时
+     */
+    public static int resolveTimeout(Method method, int referenceTimeout, RpcClientProperties properties) {
+        Map<String, Integer> methodTimeouts = properties.getMethodTimeouts();
+        if (methodTimeouts != null) {
+            Integer timeout = methodTimeouts.get(method.getDeclaringClass().getName() + "#" + method.getName());
+            if (timeout != null) {
+                return timeout;
+            }
+        }
+        if (referenceTimeout > 0) {
+            return referenceTimeout;
+        }
+        return properties.getTimeout() == null ? 0 : properties.getTimeout();
+    }
+
+    /**
+     * 判断方法是否以异步方式调用
+     *
+     * @param method 调用的方法
+     * @return 返回值类型为 CompletableFuture 时为 true
+     */
+    public static boolean isAsync(Method method) {
+        return method.getReturnType() == CompletableFuture.class;
+    }
+
+    /**
+     * 构造请求并完成服务发现
+     */
+    private static RequestMetaData buildRequest(String serviceName, Method method, Object[] args,
+                                                ServiceDiscovery serviceDiscovery, RpcClientProperties properties,
+                                                int timeout) {
         // 1. 请求: 构造 requestRpcMessage = header + body
         // 唯一需要预先指定是序列化算法类型, 也就是说需要传递一个东西能得到用户指定的序列化算法
         MessageHeader header = MessageHeader.build(properties.getSerialization());
@@ -73,22 +154,18 @@ public class RemoteMethodCall {
         requestRpcMessage.setMessageHeader(header);
         requestRpcMessage.setBody(request);
         // 3.2 构建请求元数据
-        RequestMetaData requestMetaData = RequestMetaData.builder()
+        return RequestMetaData.builder()
                 .rpcMessage(requestRpcMessage)
                 .serverAddr(serviceMessage.getInetAddress())
                 .port(serviceMessage.getPort())
-                .timeout(properties.getTimeout())
+                .timeout(timeout)
                 .build();
+    }
 
-        // 4. 网络传输, 发送请求
-        RpcMessage responseRpcMessage;
-        // 4.1 正常发送
-        responseRpcMessage = client.sendRequest(requestMetaData);
-        // NOTE: 4.2 失败重试
-        // if (responseRpcMessage == null && serviceDiscovery.checkRetry(serviceName)) {
-        //     responseRpcMessage = new FailureRetry().retry(requestMetaData, client);
-        // }
-
+    /**
+     * 从响应消息中取出返回值
+     */
+    private static Object getReturnValue(RpcMessage responseRpcMessage) {
         // 5. 接受响应: 拿到 RpcResponse
         if (responseRpcMessage == null) {
             throw new RpcException("Remote procedure call failed.");
@@ -52,7 +52,7 @@ public class RpcClientBeanPostProcessor implements BeanPostProcessor {
                         clazz = rpcReference.interfaceClass();
                     }
                     // 获取指定类型的代理对象
-                    Object proxy = clientProxyFactory.getProxy(clazz, rpcReference.version());
+                    Object proxy = clientProxyFactory.getProxy(clazz, rpcReference.version(), rpcReference.timeout());
                     // 关闭安全检查
                     field.setAccessible(true);
                     // 设置域的值为代理对象
@@ -3,6 +3,9 @@ package com.lj.rpc.client.transport;
 import com.lj.rpc.client.entity.RequestMetaData;
 import com.lj.rpc.core.protocol.RpcMessage;
 
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Rpc 客户端类，负责向服务端发起请求
  *
@@ -18,4 +21,22 @@ public interface RpcClient {
      * @return RPC 响应内容
      */
     RpcMessage sendRequest(RequestMetaData request);
+
+    /**
+     * 异步发起远程过程调用, 不阻塞调用线程
+     *
+     * <p>返回的 future 在响应到达、发送失败或超时时完成, 其回调不会在网络 IO 线程中执行
+     *
+     * @param request RPC 请求内容
+     * @return RPC 响应内容的 future
+     */
+    CompletableFuture<RpcMessage> sendRequestAsync(RequestMetaData request);
+
+    /**
+     * 预热: 在后台建立到该服务端的连接, 第一次调用时无需等待连接建立; 默认不做任何操作
+     *
+     * @param inetSocketAddress 服务端 socket 地址
+     */
+    default void warmUp(InetSocketAddress inetSocketAddress) {
+    }
 }
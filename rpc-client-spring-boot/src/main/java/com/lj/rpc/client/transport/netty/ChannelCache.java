@@ -1,51 +1,292 @@
 package com.lj.rpc.client.transport.netty;
 
 import io.netty.channel.Channel;
+import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
 
 /**
  * 缓存 Channel 对象, 以达到 channel 复用的目的
  *
+ * <p>
+ * 每个服务端地址维护固定数量的连接 (连接池), 每次调用选择未完成调用数最少的连接;
+ * 第一次访问或预热某个地址时在后台建立全部连接, 调用方只需等待最先建立成功的一个。
+ * 连接断开后在后台重新建立, 不阻塞调用线程
+ * </p>
+ *
+ * <p>
+ * 同一位置同一时刻只有一个建立中的连接, 并发的调用方共享同一个 future。
+ * 连接建立失败后按指数退避 (带随机抖动) 推迟下一次尝试, 退避期间调用方直接得到上一次的失败原因,
+ * 避免服务端冷启动或故障切换时被大量重连请求压垮
+ * </p>
+ *
+ * <p>
+ * 某个地址的全部连接都已失败, 且退避时间均已达到上限时, 移除该地址的连接池, 不再保留也不再重连;
+ * 之后若再次调用该地址, 会重新创建连接池
+ * </p>
+ *
  * @author liujue
  * @version 1.0
  * @date 2024/1/31 14:59
  */
+@Slf4j
 public class ChannelCache {
 
     /**
-     * Channel 对象集合, key: socket 地址; value: Channel 对象
+     * 连接池集合, key: socket 地址; value: 该地址的连接池
+     */
+    private final Map<InetSocketAddress, Connections> channels = new ConcurrentHashMap<>();
+
+    /**
+     * 建立连接的方法, 返回连接建立完成时完成的 future
+     */
+    private final Function<InetSocketAddress, CompletableFuture<Channel>> connector;
+
+    /**
+     * 每个地址的连接数
      */
-    private static final Map<InetSocketAddress, Channel> CHANNELS = new ConcurrentHashMap<>();
+    private final int connectionsPerAddress;
+
+    /**
+     * 第一次连接失败后的退避时间, 单位纳秒
+     */
+    private final long initialBackoffNanos;
+
+    /**
+     * 退避时间上限, 单位纳秒
+     */
+    private final long maxBackoffNanos;
+
+    public ChannelCache(Function<InetSocketAddress, CompletableFuture<Channel>> connector, int connectionsPerAddress,
+                        long initialBackoffMillis, long maxBackoffMillis) {
+        this.connector = connector;
+        this.connectionsPerAddress = Math.max(1, connectionsPerAddress);
+        this.initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, initialBackoffMillis));
+        this.maxBackoffNanos = Math.max(initialBackoffNanos, TimeUnit.MILLISECONDS.toNanos(maxBackoffMillis));
+    }
 
     /**
-     * 获取 channel 对象
+     * 获取一个可用连接, 优先选择未完成调用数最少的连接
      *
      * @param inetSocketAddress 服务端 socket 地址
-     * @return channel 对象
+     * @return 可用连接的 future, 已有可用连接时立即完成
      */
-    public Channel get(InetSocketAddress inetSocketAddress) {
-        if (CHANNELS.containsKey(inetSocketAddress)) {
-            Channel channel = CHANNELS.get(inetSocketAddress);
-            if (channel != null && channel.isActive()) {
-                return channel;
-            } else {
-                CHANNELS.remove(inetSocketAddress);
-            }
-        }
-        return null;
+    public CompletableFuture<Channel> get(InetSocketAddress inetSocketAddress) {
+        return connections(inetSocketAddress).acquire();
     }
 
     /**
-     * 添加 channel 对象
+     * 预热: 在后台建立到该地址的全部连接, 不等待连接完成; 已有连接池的地址不做任何操作
      *
      * @param inetSocketAddress 服务端 socket 地址
-     * @param channel           channel 对象
      */
-    public void set(InetSocketAddress inetSocketAddress, Channel channel) {
-        CHANNELS.put(inetSocketAddress, channel);
+    public void warmUp(InetSocketAddress inetSocketAddress) {
+        connections(inetSocketAddress);
+    }
+
+    /**
+     * 是否缓存了该地址的连接池, 包内可见, 供测试使用
+     */
+    boolean contains(InetSocketAddress inetSocketAddress) {
+        return channels.containsKey(inetSocketAddress);
+    }
+
+    /**
+     * 获取该地址的连接池, 不存在时创建并在后台建立全部连接
+     */
+    private Connections connections(InetSocketAddress inetSocketAddress) {
+        Connections connections = channels.get(inetSocketAddress);
+        if (connections == null) {
+            Connections created = new Connections(inetSocketAddress);
+            connections = channels.putIfAbsent(inetSocketAddress, created);
+            if (connections == null) {
+                connections = created;
+                // 在映射之外建立连接, 同步失败时的移除不会与 putIfAbsent 冲突
+                created.connectAll();
+            }
+        }
+        return connections;
+    }
+
+    /**
+     * 指数退避的延迟时间, 不超过上限
+     */
+    private long delay(int failureCount) {
+        int shift = Math.min(failureCount - 1, 30);
+        long delay = initialBackoffNanos << shift;
+        return delay <= 0 || delay > maxBackoffNanos ? maxBackoffNanos : delay;
     }
 
+    /**
+     * 单个地址的连接池
+     */
+    private class Connections {
+
+        private final InetSocketAddress address;
+
+        /**
+         * 每个位置保存一个连接的建立过程, 同一位置同一时刻只会有一个建立中的连接
+         */
+        private final AtomicReferenceArray<CompletableFuture<Channel>> slots;
+
+        /**
+         * 选择起点, 未完成调用数相同时轮流使用各个连接
+         */
+        private final AtomicInteger next = new AtomicInteger(ThreadLocalRandom.current().nextInt(1024));
+
+        /**
+         * 每个位置连续失败的次数, 连接成功后清零
+         */
+        private final AtomicIntegerArray failures;
+
+        /**
+         * 每个位置允许下一次尝试连接的时间点 (System.nanoTime)
+         */
+        private final AtomicLongArray retryAt;
+
+        /**
+         * 已从缓存中移除, 之后断开的连接不再重建
+         */
+        private volatile boolean evicted;
+
+        Connections(InetSocketAddress address) {
+            this.address = address;
+            this.slots = new AtomicReferenceArray<>(connectionsPerAddress);
+            this.failures = new AtomicIntegerArray(connectionsPerAddress);
+            this.retryAt = new AtomicLongArray(connectionsPerAddress);
+        }
+
+        private void connectAll() {
+            for (int i = 0; i < slots.length(); i++) {
+                ensureConnected(i);
+            }
+        }
+
+        CompletableFuture<Channel> acquire() {
+            Channel best = null;
+            int bestPending = Integer.MAX_VALUE;
+            int n = slots.length();
+            int start = n == 1 ? 0 : Math.floorMod(next.getAndIncrement(), n);
+            for (int i = 0; i < n; i++) {
+                int index = (start + i) % n;
+                Channel channel = activeChannel(slots.get(index));
+                if (channel == null) {
+                    // 失效的连接在后台重建, 本次调用使用其他连接
+                    ensureConnected(index);
+                    continue;
+                }
+                int pending = PendingCalls.get(channel).size();
+                if (pending < bestPending) {
+                    best = channel;
+                    bestPending = pending;
+                }
+            }
+            if (best != null) {
+                return CompletableFuture.completedFuture(best);
+            }
+            return firstConnected();
+        }
+
+        /**
+         * 所有连接都不可用时, 等待最先建立成功的连接, 全部失败时以最后一个异常失败
+         */
+        private CompletableFuture<Channel> firstConnected() {
+            CompletableFuture<Channel> result = new CompletableFuture<>();
+            int n = slots.length();
+            AtomicInteger failures = new AtomicInteger();
+            for (int i = 0; i < n; i++) {
+                ensureConnected(i).whenComplete((channel, cause) -> {
+                    if (cause == null && channel.isActive()) {
+                        result.complete(channel);
+                    } else if (failures.incrementAndGet() == n) {
+                        result.completeExceptionally(cause != null ? cause
+                                : new IllegalStateException("The channel is inactivate."));
+                    }
+                });
+            }
+            return result;
+        }
+
+        /**
+         * 保证该位置上有一个已建立或建立中的连接, 已失败或已断开的连接会被替换;
+         * 上一次连接失败且仍处于退避期时, 直接返回失败的 future
+         */
+        private CompletableFuture<Channel> ensureConnected(int index) {
+            while (true) {
+                CompletableFuture<Channel> current = slots.get(index);
+                if (current != null && (!current.isDone() || activeChannel(current) != null)) {
+                    return current;
+                }
+                if (current != null && current.isCompletedExceptionally()
+                        && System.nanoTime() - retryAt.get(index) < 0) {
+                    return current;
+                }
+                CompletableFuture<Channel> connecting = new CompletableFuture<>();
+                if (slots.compareAndSet(index, current, connecting)) {
+                    connector.apply(address).whenComplete((channel, cause) -> {
+                        if (cause != null) {
+                            long backoff = backoff(failures.incrementAndGet(index));
+                            retryAt.set(index, System.nanoTime() + backoff);
+                            log.warn("Failed to connect to [{}], retry after {}ms: {}", address,
+                                    TimeUnit.NANOSECONDS.toMillis(backoff), cause.getMessage());
+                            connecting.completeExceptionally(cause);
+                            evictIfExhausted();
+                            return;
+                        }
+                        failures.set(index, 0);
+                        // 连接断开后在后台重建, 下一次调用即可使用新连接
+                        channel.closeFuture().addListener(f -> {
+                            if (!evicted && slots.get(index) == connecting) {
+                                ensureConnected(index);
+                            }
+                        });
+                        connecting.complete(channel);
+                    });
+                    return connecting;
+                }
+            }
+        }
+
+        /**
+         * 指数退避, 在 [delay / 2, delay] 之间随机取值, 避免多个客户端同时重连
+         */
+        private long backoff(int failureCount) {
+            long delay = delay(failureCount);
+            return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        }
+
+        /**
+         * 全部位置都已连接失败且退避时间均已达到上限时, 从缓存中移除该地址
+         */
+        private void evictIfExhausted() {
+            for (int i = 0; i < slots.length(); i++) {
+                CompletableFuture<Channel> slot = slots.get(i);
+                if (slot == null || !slot.isCompletedExceptionally() || delay(failures.get(i)) < maxBackoffNanos) {
+                    return;
+                }
+            }
+            if (channels.remove(address, this)) {
+                evicted = true;
+                log.warn("All connections to [{}] failed after reaching the maximum backoff, evict it.", address);
+            }
+        }
+
+        private Channel activeChannel(CompletableFuture<Channel> future) {
+            if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+                return null;
+            }
+            Channel channel = future.join();
+            return channel.isActive() ? channel : null;
+        }
+    }
 }
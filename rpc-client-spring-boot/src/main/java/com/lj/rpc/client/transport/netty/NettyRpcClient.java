@@ -1,29 +1,32 @@
 package com.lj.rpc.client.transport.netty;
 
+import com.lj.rpc.client.config.RpcClientProperties;
 import com.lj.rpc.client.entity.RequestMetaData;
 import com.lj.rpc.client.handler.RpcResponseHandler;
 import com.lj.rpc.client.transport.RpcClient;
 import com.lj.rpc.core.codec.RpcFrameDecoder;
 import com.lj.rpc.core.codec.SharableRpcMessageCodec;
+import com.lj.rpc.core.config.ThreadPoolConfig;
 import com.lj.rpc.core.exception.RpcException;
-import com.lj.rpc.core.factory.SingletonFactory;
+import com.lj.rpc.core.factory.CompressorFactory;
+import com.lj.rpc.core.factory.NettyEventLoopFactory;
+import com.lj.rpc.core.factory.ThreadPoolFactory;
 import com.lj.rpc.core.protocol.RpcMessage;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.timeout.IdleStateHandler;
-import io.netty.util.concurrent.DefaultPromise;
-import io.netty.util.concurrent.Promise;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetSocketAddress;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 /**
  * 基于 Netty 框架实现的 RpcClient 客户端类
@@ -40,123 +43,211 @@ public class NettyRpcClient implements RpcClient {
      */
     private final Bootstrap bootstrap;
 
+    /**
+     * 事件循环组, 关闭客户端时释放
+     */
+    private final EventLoopGroup eventLoopGroup;
+
     /**
      * channel 对象缓存
      */
     private final ChannelCache channelCache;
 
+    /**
+     * 异步调用的回调线程池, 调用方注册在 future 上的回调在这里执行, 而不是在 EventLoop 线程中
+     */
+    private final ExecutorService callbackExecutor;
+
     public NettyRpcClient() {
+        this(new RpcClientProperties());
+    }
+
+    public NettyRpcClient(RpcClientProperties properties) {
         this.bootstrap = new Bootstrap();
-        // 事件循环组, 用于处理 channel 上的 io 事件
-        EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+        // 事件循环组, 用于处理 channel 上的 io 事件; 根据配置选择 epoll 或 nio
+        boolean epoll = NettyEventLoopFactory.useEpoll(properties.getTransport());
+        this.eventLoopGroup = NettyEventLoopFactory.eventLoopGroup(epoll, 0, "rpc-client-io");
+        int flushConsolidationLimit = properties.getFlushConsolidationLimit();
+        int maxFrameLength = properties.getMaxFrameLength();
+        SharableRpcMessageCodec codec = new SharableRpcMessageCodec(properties.getChunkSize(),
+                properties.getMaxMessageLength(), CompressorFactory.getType(properties.getCompress()),
+                properties.getCompressThreshold());
+        NettyEventLoopFactory.configure(bootstrap, epoll);
         bootstrap.group(eventLoopGroup)
-                .channel(NioSocketChannel.class)
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                .channel(NettyEventLoopFactory.socketChannelClass(epoll))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, properties.getConnectTimeout())
                 .handler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel ch) {
+                        // 0. 开启时添加 FlushConsolidationHandler, 同一轮事件循环中发送的请求合并为一次 flush
+                        if (flushConsolidationLimit > 0) {
+                            ch.pipeline().addLast(new FlushConsolidationHandler(flushConsolidationLimit, true));
+                        }
                         // 1. 添加 IdleStateHandler 解决连接假死问题
                         // 15s 内没有向服务器写数据, 会触发一个 IdleState#WRITER_IDLE 事件
                         ch.pipeline().addLast(new IdleStateHandler(0, 15, 0, TimeUnit.SECONDS));
                         // 2. 添加 RpcFrameDecoder 解决黏包半包问题
-                        ch.pipeline().addLast(new RpcFrameDecoder());
+                        ch.pipeline().addLast(new RpcFrameDecoder(maxFrameLength));
                         // 3. 添加 SharableRpcMessageCodec 对自定义协议进行编解码
-                        ch.pipeline().addLast(new SharableRpcMessageCodec());
+                        ch.pipeline().addLast(codec);
                         // 4. 添加 RpcResponseHandler 处理服务端发送的响应消息
                         ch.pipeline().addLast(new RpcResponseHandler());
                     }
                 });
-        // 初始化 channel
-        this.channelCache = SingletonFactory.getInstance(ChannelCache.class);
+        // 初始化 channel 缓存, 每个地址维护 connectionsPerAddress 个连接
+        this.channelCache = new ChannelCache(this::connect, properties.getConnectionsPerAddress(),
+                properties.getReconnectInitialBackoff(), properties.getReconnectMaxBackoff());
+        this.callbackExecutor = createCallbackExecutor(properties.getExecutorMode());
+    }
+
+    /**
+     * 创建异步调用的回调执行器, virtual 模式下每个回调在一个新的虚拟线程中执行, 回调中可以放心地阻塞
+     */
+    private static ExecutorService createCallbackExecutor(String executorMode) {
+        if ("virtual".equalsIgnoreCase(executorMode)) {
+            if (ThreadPoolFactory.isVirtualThreadSupported()) {
+                return ThreadPoolFactory.createVirtualThreadExecutor("rpc-client-callback-");
+            }
+            log.warn("Virtual threads require JDK 21 or later, fall back to the thread pool.");
+        }
+        // 队列无界, 保证响应一定能被转交; 空闲时核心线程同样会被回收
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = ThreadPoolFactory.createCustomThreadPool(new ThreadPoolConfig(60L, threads,
+                threads, TimeUnit.SECONDS, new LinkedBlockingQueue<>()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
-    @SneakyThrows
     @Override
     public RpcMessage sendRequest(RequestMetaData request) {
-        // 1. 构建接收返回结果的 promise
-        Promise<RpcMessage> promise;
-        Channel channel = getChannel(new InetSocketAddress(request.getServerAddr(), request.getPort()));
+        // 同步调用直接等待内部 future, 不经过回调线程池, 超时由定时任务保证;
+        // 等待路径上没有 synchronized, 调用方为虚拟线程时只挂起虚拟线程, 不占用载体线程
+        try {
+            return send(request).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpcException(e);
+        } catch (ExecutionException e) {
+            // 调用失败
+            throw new RpcException(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<RpcMessage> sendRequestAsync(RequestMetaData request) {
+        // 内部 future 在 EventLoop 线程中完成, 转交给回调线程池后再通知调用方,
+        // 保证调用方注册的回调不会在 EventLoop 线程中执行
+        return send(request).whenCompleteAsync((msg, cause) -> {
+        }, callbackExecutor);
+    }
+
+    /**
+     * 发送请求, 返回在响应到达、发送失败或超时时完成的 future; 连接尚未建立时不阻塞调用线程,
+     * 连接建立后再发送
+     *
+     * @param request 请求元数据
+     * @return 响应 future
+     */
+    private CompletableFuture<RpcMessage> send(RequestMetaData request) {
+        return getChannelAsync(new InetSocketAddress(request.getServerAddr(), request.getPort()))
+                .thenCompose(channel -> send(channel, request));
+    }
+
+    private CompletableFuture<RpcMessage> send(Channel channel, RequestMetaData request) {
         if (!channel.isActive()) {
             throw new IllegalStateException("The channel is inactivate.");
         }
-        // 创建 promise 来接受结果, 其中参数为执行完成通知的线程
-        promise = new DefaultPromise<>(channel.eventLoop());
+        // 1. 构建接收返回结果的 future
+        CompletableFuture<RpcMessage> future = new CompletableFuture<>();
         int sequenceId = request.getRpcMessage().getMessageHeader().getSequenceId();
-        // 存入还未处理的请求
-        RpcResponseHandler.UNPROCESSED_RPC_RESPONSES.put(sequenceId, promise);
-        // 2. 发送数据并监听发送状态
-        channel.writeAndFlush(request.getRpcMessage()).addListener((ChannelFutureListener) future -> {
-            if (future.isSuccess()) {
-                log.debug("The client send the message successfully, msg: [{}].", request);
-            } else {
-                future.channel().close();
-                promise.setFailure(future.cause());
-                log.error("The client send the message failed.", future.cause());
+        // 2. 在 EventLoop 中登记到连接的未完成调用表并发送, 登记一定先于响应到达
+        channel.eventLoop().execute(() -> {
+            PendingCalls pending = PendingCalls.get(channel);
+            if (!pending.add(sequenceId, future)) {
+                return;
             }
+            channel.writeAndFlush(request.getRpcMessage()).addListener((ChannelFutureListener) f -> {
+                if (f.isSuccess()) {
+                    log.debug("The client send the message successfully, msg: [{}].", request);
+                } else {
+                    // 编码失败 (如请求超过最大消息长度) 时没有写出任何字节, 连接仍可继续使用, 只使本次调用失败
+                    if (!(f.cause() instanceof EncoderException)) {
+                        f.channel().close();
+                    }
+                    pending.fail(sequenceId, future, f.cause());
+                    log.error("The client send the message failed.", f.cause());
+                }
+            });
         });
 
-        // 3. 等待结果返回--让出 CPU 资源，同步阻塞调用线程 main，其他线程 eventLoop 去执行获取操作
+        // 3. 超时控制: 由时间轮在截止时间到达时移除并完成 future, 不阻塞任何线程; 如果没有指定超时时间，则一直等待响应
         Integer timeout = request.getTimeout();
-        // 如果没有指定超时时间，则 await 直到 promise 完成
-        if (timeout == null || timeout <= 0) {
-            promise.await();
-        } else {
-            // 在指定超时时间内等待结果返回
-            boolean success = promise.await(timeout, TimeUnit.MILLISECONDS);
-            if (!success) {
-                promise.setFailure(new TimeoutException(String.format("The Remote procedure call exceeded the " +
-                        "specified timeout of %dms.", timeout)));
-            }
-        }
-        if (promise.isSuccess()) {
-            // 调用正常
-            return promise.getNow();
-        } else {
-            // 调用失败
-            throw new RpcException(promise.cause());
+        if (timeout != null) {
+            TimeoutManager.watch(channel, sequenceId, future, timeout);
         }
+        return future;
     }
 
     /**
-     * 建立连接得到元 channel 对象
+     * 异步建立连接
      *
      * @param inetSocketAddress 服务端 socket 地址
-     * @return channel 对象
+     * @return 连接建立成功或失败时完成的 future
      */
-    public Channel doConnect(InetSocketAddress inetSocketAddress) throws ExecutionException, InterruptedException {
+    private CompletableFuture<Channel> connect(InetSocketAddress inetSocketAddress) {
         CompletableFuture<Channel> channelCompletableFuture = new CompletableFuture<>();
         bootstrap.connect(inetSocketAddress).addListener((ChannelFutureListener) future -> {
             if (future.isSuccess()) {
                 log.debug("The client has successfully connected to server [{}]!", inetSocketAddress.toString());
+                future.channel().closeFuture().addListener(f ->
+                        log.info("The client has been disconnected from server [{}].", inetSocketAddress.toString()));
                 channelCompletableFuture.complete(future.channel());
             } else {
-                throw new RpcException(String.format("The client failed to connect to [%s].", inetSocketAddress.toString()));
+                channelCompletableFuture.completeExceptionally(new RpcException(String.format(
+                        "The client failed to connect to [%s].", inetSocketAddress.toString()), future.cause()));
             }
         });
-        Channel channel = channelCompletableFuture.get();
-        channel.closeFuture().addListener(future ->
-                log.info("The client has been disconnected from server [{}].", inetSocketAddress.toString()));
-        return channel;
+        return channelCompletableFuture;
+    }
+
+    @Override
+    public void warmUp(InetSocketAddress inetSocketAddress) {
+        channelCache.warmUp(inetSocketAddress);
     }
 
     /**
-     * 获取 channel 对象
+     * 关闭客户端: 关闭全部连接并释放事件循环组与回调线程池, 未完成的调用以异常完成;
+     * 关闭后不会再有新的请求, 因此不需要等待静默期
+     */
+    public void close() {
+        eventLoopGroup.shutdownGracefully(0, 15, TimeUnit.SECONDS).syncUninterruptibly();
+        callbackExecutor.shutdown();
+    }
+
+    /**
+     * 异步获取 channel 对象, 优先选择未完成调用数最少的连接; 同一地址并发的调用方共享同一次连接建立过程
+     *
+     * @param inetSocketAddress socket 地址
+     * @return channel 对象的 future, 连接建立失败或超时时以异常完成
+     */
+    public CompletableFuture<Channel> getChannelAsync(InetSocketAddress inetSocketAddress) {
+        return channelCache.get(inetSocketAddress);
+    }
+
+    /**
+     * 获取 channel 对象, 优先选择未完成调用数最少的连接
      *
      * @param inetSocketAddress socket 地址
      * @return channel 对象
      */
     public Channel getChannel(InetSocketAddress inetSocketAddress) {
-        // 优先在缓存中找
-        Channel channel = channelCache.get(inetSocketAddress);
-        if (channel == null) {
-            try {
-                channel = doConnect(inetSocketAddress);
-            } catch (ExecutionException | InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.error(e.getMessage(), e);
-            }
-            channelCache.set(inetSocketAddress, channel);
+        try {
+            return getChannelAsync(inetSocketAddress).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RpcException(e);
+        } catch (ExecutionException e) {
+            throw new RpcException(e.getCause());
         }
-        return channel;
     }
 }
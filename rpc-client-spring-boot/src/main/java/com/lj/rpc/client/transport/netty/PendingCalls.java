@@ -0,0 +1,129 @@
+package com.lj.rpc.client.transport.netty;
+
+import com.lj.rpc.core.protocol.RpcMessage;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 连接级别的未完成调用表, 以消息序列号为 key
+ *
+ * <p>
+ * 使用基本类型 int 作为 key 的开放寻址表 {@link IntObjectHashMap}, 查找时无需装箱;
+ * 所有读写都在连接所属的 EventLoop 线程中进行, 因此无需同步, 其他线程通过提交任务的方式访问。
+ * 连接断开时, 表中所有未完成的调用立即失败, 不必等到超时
+ * </p>
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/7/28 9:45
+ */
+public class PendingCalls {
+
+    private static final AttributeKey<PendingCalls> KEY = AttributeKey.valueOf("pendingCalls");
+
+    private final IntObjectMap<CompletableFuture<RpcMessage>> calls = new IntObjectHashMap<>();
+
+    /**
+     * 未完成调用数, 供其他线程读取 (例如选择最空闲的连接)
+     */
+    private volatile int size;
+
+    /**
+     * 连接已断开, 之后登记的调用直接失败
+     */
+    private Throwable closeCause;
+
+    /**
+     * 获取连接对应的未完成调用表, 不存在时创建
+     *
+     * @param channel 连接
+     * @return 未完成调用表
+     */
+    public static PendingCalls get(Channel channel) {
+        Attribute<PendingCalls> attr = channel.attr(KEY);
+        PendingCalls pending = attr.get();
+        if (pending == null) {
+            pending = new PendingCalls();
+            PendingCalls exist = attr.setIfAbsent(pending);
+            if (exist != null) {
+                pending = exist;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * 登记调用, 需在 EventLoop 线程中调用
+     *
+     * @param sequenceId 消息序列号
+     * @param future     调用对应的 future
+     * @return 连接已断开时返回 false, 此时 future 已失败
+     */
+    public boolean add(int sequenceId, CompletableFuture<RpcMessage> future) {
+        if (closeCause != null) {
+            future.completeExceptionally(closeCause);
+            return false;
+        }
+        calls.put(sequenceId, future);
+        size = calls.size();
+        return true;
+    }
+
+    /**
+     * 移除并返回调用, 需在 EventLoop 线程中调用
+     *
+     * @param sequenceId 消息序列号
+     * @return 调用对应的 future, 不存在 (已超时或已完成) 时返回 null
+     */
+    public CompletableFuture<RpcMessage> remove(int sequenceId) {
+        CompletableFuture<RpcMessage> future = calls.remove(sequenceId);
+        size = calls.size();
+        return future;
+    }
+
+    /**
+     * 仅当序列号对应的仍是指定的 future 时才移除并以异常完成, 需在 EventLoop 线程中调用
+     *
+     * @param sequenceId 消息序列号
+     * @param future     调用对应的 future
+     * @param cause      失败原因
+     */
+    public void fail(int sequenceId, CompletableFuture<RpcMessage> future, Throwable cause) {
+        if (calls.get(sequenceId) == future) {
+            calls.remove(sequenceId);
+            size = calls.size();
+        }
+        future.completeExceptionally(cause);
+    }
+
+    /**
+     * 连接断开时使所有未完成调用立即失败, 需在 EventLoop 线程中调用
+     *
+     * @param cause 失败原因
+     */
+    public void failAll(Throwable cause) {
+        closeCause = cause;
+        List<CompletableFuture<RpcMessage>> futures = new ArrayList<>(calls.values());
+        calls.clear();
+        size = 0;
+        for (CompletableFuture<RpcMessage> future : futures) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 获取未完成调用数, 可在任意线程中调用
+     *
+     * @return 未完成调用数
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,67 @@
+package com.lj.rpc.client.transport.netty;
+
+import com.lj.rpc.core.protocol.RpcMessage;
+import io.netty.channel.Channel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 未完成调用的超时管理器
+ *
+ * <p>
+ * 所有客户端共享一个 {@link HashedWheelTimer}: 登记调用时按截止时间放入时间轮, 到期后从连接的未完成调用表中移除并以
+ * {@link TimeoutException} 完成对应的 future; 调用先完成时取消定时任务。同步与异步调用使用同一套机制,
+ * 即使服务端长时间无响应, 未完成调用表也不会无限增长
+ * </p>
+ *
+ * <p>
+ * 时间轮精度为 {@value #TICK_MILLIS}ms, 超时回调在时间轮线程中执行, 只负责把移除操作提交给连接的 EventLoop,
+ * 调用方注册的异步回调仍由客户端的回调线程池执行
+ * </p>
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/7/27 10:20
+ */
+public class TimeoutManager {
+
+    /**
+     * 时间轮每格的时长, 单位毫秒
+     */
+    private static final long TICK_MILLIS = 10L;
+
+    private static final Timer TIMER = new HashedWheelTimer(
+            new DefaultThreadFactory("rpc-client-timeout", true), TICK_MILLIS, TimeUnit.MILLISECONDS, 512);
+
+    private TimeoutManager() {
+
+    }
+
+    /**
+     * 为已登记到未完成调用表中的调用设置截止时间
+     *
+     * @param channel       调用所在的连接
+     * @param sequenceId    消息序列号
+     * @param future        调用对应的 future
+     * @param timeoutMillis 超时时间, 单位毫秒, 不大于 0 时不设置截止时间
+     */
+    public static void watch(Channel channel, int sequenceId, CompletableFuture<RpcMessage> future,
+                             long timeoutMillis) {
+        if (timeoutMillis <= 0 || future.isDone()) {
+            return;
+        }
+        Timeout timeout = TIMER.newTimeout(t -> {
+            TimeoutException cause = new TimeoutException(String.format("The Remote procedure " +
+                    "call exceeded the specified timeout of %dms.", timeoutMillis));
+            // 未完成调用表只能在 EventLoop 中访问; 只移除自己登记的 future, 避免误删序列号复用后的新调用
+            channel.eventLoop().execute(() -> PendingCalls.get(channel).fail(sequenceId, future, cause));
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        future.whenComplete((msg, cause) -> timeout.cancel());
+    }
+}
@@ -0,0 +1,108 @@
+package com.lj.rpc.client.proxy;
+
+import com.lj.rpc.client.config.RpcClientProperties;
+import com.lj.rpc.client.entity.RequestMetaData;
+import com.lj.rpc.client.transport.RpcClient;
+import com.lj.rpc.core.discovery.ServiceDiscovery;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.ServiceMessage;
+import com.lj.rpc.core.protocol.RpcMessage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 客户端代理工厂测试类
+ *
+ * @author liujue
+ */
+public class ClientProxyFactoryTest {
+
+    private final List<InetSocketAddress> warmed = new ArrayList<>();
+
+    @Test
+    public void testWarmUpOnFirstProxy() {
+        ClientProxyFactory factory = new ClientProxyFactory(new TestDiscovery(), new TestClient(),
+                new RpcClientProperties());
+        WarmUpService proxy = factory.getProxy(WarmUpService.class, "1.0");
+        // 第一次创建代理对象时预热到全部提供者的连接
+        Assert.assertEquals(Arrays.asList(new InetSocketAddress("127.0.0.1", 8080),
+                new InetSocketAddress("127.0.0.1", 8081)), warmed);
+        // 缓存中已有代理对象时不再预热
+        Assert.assertSame(proxy, factory.getProxy(WarmUpService.class, "1.0"));
+        Assert.assertEquals(2, warmed.size());
+    }
+
+    @Test
+    public void testWarmUpFailure() {
+        ServiceDiscovery discovery = new TestDiscovery() {
+            @Override
+            public List<ServiceMessage> getAllServices(String serviceName) throws Exception {
+                throw new IllegalStateException("The registry is unavailable.");
+            }
+        };
+        // 预热失败不影响代理对象的创建
+        ClientProxyFactory factory = new ClientProxyFactory(discovery, new TestClient(), new RpcClientProperties());
+        Assert.assertNotNull(factory.getProxy(FailedWarmUpService.class, "1.0"));
+        Assert.assertTrue(warmed.isEmpty());
+    }
+
+    public interface WarmUpService {
+
+        String hello(String name);
+    }
+
+    public interface FailedWarmUpService {
+
+        String hello(String name);
+    }
+
+    private static class TestDiscovery implements ServiceDiscovery {
+
+        @Override
+        public ServiceMessage discover(RpcRequest request) {
+            return null;
+        }
+
+        @Override
+        public List<ServiceMessage> getAllServices(String serviceName) throws Exception {
+            return Arrays.asList(service(8080), service(8081));
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        @Override
+        public boolean checkRetry(String serviceName) {
+            return false;
+        }
+
+        private static ServiceMessage service(int port) {
+            return ServiceMessage.builder().inetAddress("127.0.0.1").port(port).build();
+        }
+    }
+
+    private class TestClient implements RpcClient {
+
+        @Override
+        public RpcMessage sendRequest(RequestMetaData request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<RpcMessage> sendRequestAsync(RequestMetaData request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void warmUp(InetSocketAddress inetSocketAddress) {
+            warmed.add(inetSocketAddress);
+        }
+    }
+}
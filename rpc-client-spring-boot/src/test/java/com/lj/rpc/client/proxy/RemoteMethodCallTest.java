@@ -0,0 +1,133 @@
+package com.lj.rpc.client.proxy;
+
+import com.lj.rpc.client.config.RpcClientProperties;
+import com.lj.rpc.client.entity.RequestMetaData;
+import com.lj.rpc.client.transport.RpcClient;
+import com.lj.rpc.core.discovery.ServiceDiscovery;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.entity.ServiceMessage;
+import com.lj.rpc.core.exception.RpcException;
+import com.lj.rpc.core.protocol.RpcMessage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 远程方法调用工具类测试类
+ *
+ * @author liujue
+ */
+public class RemoteMethodCallTest {
+
+    @Test
+    public void testTimeoutPrecedence() throws Exception {
+        Method method = TestService.class.getMethod("hello", String.class);
+        RpcClientProperties properties = new RpcClientProperties();
+        properties.setTimeout(3000);
+        // 未单独配置时使用全局超时时间
+        Assert.assertEquals(3000, RemoteMethodCall.resolveTimeout(method, 0, properties));
+        // @RpcReference(timeout) 优先于全局超时时间
+        Assert.assertEquals(2000, RemoteMethodCall.resolveTimeout(method, 2000, properties));
+        // rpc.client.method-timeouts 优先级最高, 且只对配置的方法生效
+        properties.getMethodTimeouts().put(TestService.class.getName() + "#hello", 1000);
+        Assert.assertEquals(1000, RemoteMethodCall.resolveTimeout(method, 2000, properties));
+        Method other = TestService.class.getMethod("bye", String.class);
+        Assert.assertEquals(2000, RemoteMethodCall.resolveTimeout(other, 2000, properties));
+        // 全局超时时间为空时表示不超时
+        properties.setTimeout(null);
+        Assert.assertEquals(0, RemoteMethodCall.resolveTimeout(other, 0, properties));
+    }
+
+    @Test
+    public void testAsyncRemoteException() throws Exception {
+        Method method = TestService.class.getMethod("helloAsync", String.class);
+        RpcResponse response = new RpcResponse();
+        response.setExceptionValue(new RpcException("Error in remote procedure call, boom"));
+        RpcMessage message = new RpcMessage();
+        message.setBody(response);
+        CompletableFuture<RpcMessage> sent = new CompletableFuture<>();
+        // 异步方法立即返回 future, 远程异常通过 future 传递而不是从代理方法中抛出
+        Object result = RemoteMethodCall.remoteCall(TestService.class.getName(), method, new Object[]{"liujue"},
+                new TestDiscovery(), new TestClient(sent), new RpcClientProperties(), 1000);
+        Assert.assertTrue(result instanceof CompletableFuture);
+        CompletableFuture<?> future = (CompletableFuture<?>) result;
+        Assert.assertFalse(future.isDone());
+        sent.complete(message);
+        Assert.assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof RpcException);
+            Assert.assertTrue(e.getCause().getMessage().contains("boom"));
+        }
+    }
+
+    @Test
+    public void testAsyncServiceNotFound() throws Exception {
+        Method method = TestService.class.getMethod("helloAsync", String.class);
+        ServiceDiscovery discovery = new TestDiscovery() {
+            @Override
+            public ServiceMessage discover(RpcRequest request) {
+                return null;
+            }
+        };
+        // 服务发现失败同样通过 future 传递
+        Object result = RemoteMethodCall.remoteCall(TestService.class.getName(), method, new Object[]{"liujue"},
+                discovery, new TestClient(new CompletableFuture<>()), new RpcClientProperties(), 1000);
+        Assert.assertTrue(((CompletableFuture<?>) result).isCompletedExceptionally());
+    }
+
+    public interface TestService {
+
+        String hello(String name);
+
+        CompletableFuture<String> helloAsync(String name);
+
+        String bye(String name);
+    }
+
+    private static class TestDiscovery implements ServiceDiscovery {
+
+        @Override
+        public ServiceMessage discover(RpcRequest request) {
+            return ServiceMessage.builder()
+                    .serviceName(request.getServiceName())
+                    .inetAddress("127.0.0.1")
+                    .port(8080)
+                    .build();
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        @Override
+        public boolean checkRetry(String serviceName) {
+            return false;
+        }
+    }
+
+    private static class TestClient implements RpcClient {
+
+        private final CompletableFuture<RpcMessage> future;
+
+        TestClient(CompletableFuture<RpcMessage> future) {
+            this.future = future;
+        }
+
+        @Override
+        public RpcMessage sendRequest(RequestMetaData request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<RpcMessage> sendRequestAsync(RequestMetaData request) {
+            return future;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.lj.rpc.client.transport.netty;
+
+import io.netty.channel.Channel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接缓存测试类
+ *
+ * @author liujue
+ */
+public class ChannelCacheTest {
+
+    private static final InetSocketAddress ADDRESS = InetSocketAddress.createUnresolved("127.0.0.1", 9999);
+
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    public void testEvictAfterMaxBackoff() {
+        // 第一次失败的退避时间即已达到上限
+        ChannelCache cache = new ChannelCache(this::refuse, 2, 1, 1);
+        Assert.assertTrue(cache.get(ADDRESS).isCompletedExceptionally());
+        Assert.assertFalse(cache.contains(ADDRESS));
+    }
+
+    @Test
+    public void testKeepBeforeMaxBackoff() {
+        ChannelCache cache = new ChannelCache(this::refuse, 2, 1000, 10000);
+        Assert.assertTrue(cache.get(ADDRESS).isCompletedExceptionally());
+        Assert.assertTrue(cache.contains(ADDRESS));
+    }
+
+    @Test
+    public void testNoRetryDuringBackoff() {
+        ChannelCache cache = new ChannelCache(this::refuse, 2, 10000, 60000);
+        Assert.assertTrue(cache.get(ADDRESS).isCompletedExceptionally());
+        Assert.assertEquals(2, attempts.get());
+        // 退避期内直接返回上一次的失败, 不再尝试连接
+        Assert.assertTrue(cache.get(ADDRESS).isCompletedExceptionally());
+        Assert.assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testRetryAfterBackoff() throws InterruptedException {
+        ChannelCache cache = new ChannelCache(this::refuse, 2, 200, 5000);
+        Assert.assertTrue(cache.get(ADDRESS).isCompletedExceptionally());
+        Assert.assertEquals(2, attempts.get());
+        Thread.sleep(500);
+        Assert.assertTrue(cache.get(ADDRESS).isCompletedExceptionally());
+        Assert.assertEquals(4, attempts.get());
+    }
+
+    @Test
+    public void testShareConnecting() {
+        ChannelCache cache = new ChannelCache(address -> {
+            attempts.incrementAndGet();
+            return new CompletableFuture<>();
+        }, 2, 1, 1000);
+        // 连接建立中时, 并发的调用方共享同一次连接
+        Assert.assertFalse(cache.get(ADDRESS).isDone());
+        Assert.assertFalse(cache.get(ADDRESS).isDone());
+        Assert.assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testWarmUp() {
+        ChannelCache cache = new ChannelCache(address -> {
+            attempts.incrementAndGet();
+            return new CompletableFuture<>();
+        }, 3, 1, 1000);
+        // 预热在后台建立全部连接, 之后的调用共享这些连接
+        cache.warmUp(ADDRESS);
+        Assert.assertTrue(cache.contains(ADDRESS));
+        Assert.assertEquals(3, attempts.get());
+        cache.warmUp(ADDRESS);
+        Assert.assertFalse(cache.get(ADDRESS).isDone());
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    private CompletableFuture<Channel> refuse(InetSocketAddress address) {
+        attempts.incrementAndGet();
+        CompletableFuture<Channel> future = new CompletableFuture<>();
+        future.completeExceptionally(new ConnectException("Connection refused: " + address));
+        return future;
+    }
+}
@@ -0,0 +1,227 @@
+package com.lj.rpc.client.transport.netty;
+
+import com.lj.rpc.client.config.RpcClientProperties;
+import com.lj.rpc.client.entity.RequestMetaData;
+import com.lj.rpc.core.codec.RpcFrameDecoder;
+import com.lj.rpc.core.codec.SharableRpcMessageCodec;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.enums.MessageStatus;
+import com.lj.rpc.core.enums.MessageType;
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.protocol.MessageHeader;
+import com.lj.rpc.core.protocol.RpcMessage;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.EncoderException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 客户端测试类, 使用只实现了协议编解码的简易服务端
+ *
+ * @author liujue
+ */
+public class NettyRpcClientTest {
+
+    private EventLoopGroup serverGroup;
+
+    private Channel serverChannel;
+
+    private NettyRpcClient client;
+
+    private RpcClientProperties properties;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new RpcFrameDecoder(), new SharableRpcMessageCodec(),
+                                new EchoHandler());
+                    }
+                })
+                .bind("127.0.0.1", 0).sync().channel();
+        properties = new RpcClientProperties();
+        properties.setConnectionsPerAddress(1);
+        properties.setMaxMessageLength(10 * 1024);
+        client = new NettyRpcClient(properties);
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        serverChannel.close();
+        serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testRequestTooLong() throws Exception {
+        char[] chars = new char[100 * 1024];
+        Arrays.fill(chars, 'x');
+        Channel channel = client.getChannel(address());
+        try {
+            client.sendRequestAsync(request("echo", new String(chars))).get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof EncoderException);
+        }
+        // 编码失败的请求没有写出任何字节, 连接仍可继续使用
+        Assert.assertTrue(channel.isActive());
+        Assert.assertEquals(0, PendingCalls.get(channel).size());
+        RpcMessage response = client.sendRequestAsync(request("echo", "liujue")).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("liujue", ((RpcResponse) response.getBody()).getReturnValue());
+        Assert.assertSame(channel, client.getChannel(address()));
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        Channel channel = client.getChannel(address());
+        CompletableFuture<RpcMessage> future = client.sendRequestAsync(request("hang", null));
+        // 关闭客户端时关闭全部连接, 未完成的调用以异常完成而不是等到超时
+        client.close();
+        Assert.assertFalse(channel.isActive());
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertFalse(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        Channel channel = client.getChannel(address());
+        try {
+            client.sendRequestAsync(request("hang", null, 100)).get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        // 超时的调用已从未完成调用表中移除
+        Assert.assertEquals(0, PendingCalls.get(channel).size());
+    }
+
+    @Test
+    public void testLateResponse() throws Exception {
+        Channel channel = client.getChannel(address());
+        long start = System.nanoTime();
+        try {
+            client.sendRequestAsync(request("delay", 300, 100)).get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+        // 超时之后到达的响应被直接丢弃, 不影响连接与之后的调用
+        Thread.sleep(500);
+        Assert.assertTrue(channel.isActive());
+        Assert.assertEquals(0, PendingCalls.get(channel).size());
+        RpcMessage response = client.sendRequestAsync(request("echo", "liujue")).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("liujue", ((RpcResponse) response.getBody()).getReturnValue());
+    }
+
+    @Test
+    public void testCallbackExecutor() throws Exception {
+        Channel channel = client.getChannel(address());
+        // 响应在 EventLoop 线程中到达, 调用方注册的回调在回调线程池中执行
+        Thread thread = client.sendRequestAsync(request("delay", 200))
+                .thenApply(response -> Thread.currentThread())
+                .get(5, TimeUnit.SECONDS);
+        Assert.assertFalse(channel.eventLoop().inEventLoop(thread));
+        Assert.assertFalse(thread.getName().startsWith("rpc-client-io-"));
+    }
+
+    @Test
+    public void testVirtualCallbackExecutor() throws Exception {
+        // 不支持虚拟线程时退回线程池, 回调同样不在 EventLoop 线程中执行
+        properties.setExecutorMode("virtual");
+        client.close();
+        client = new NettyRpcClient(properties);
+        Channel channel = client.getChannel(address());
+        Thread thread = client.sendRequestAsync(request("delay", 200))
+                .thenApply(response -> Thread.currentThread())
+                .get(5, TimeUnit.SECONDS);
+        Assert.assertFalse(channel.eventLoop().inEventLoop(thread));
+    }
+
+    private InetSocketAddress address() {
+        return (InetSocketAddress) serverChannel.localAddress();
+    }
+
+    private RequestMetaData request(String method, Object argument) {
+        return request(method, argument, 5000);
+    }
+
+    private RequestMetaData request(String method, Object argument, int timeout) {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName("com.lj.rpc.api.service.EchoService-1.0");
+        request.setMethod(method);
+        request.setParameterTypes(new Class<?>[]{Object.class});
+        request.setParameterValues(new Object[]{argument});
+        RpcMessage message = new RpcMessage();
+        message.setMessageHeader(MessageHeader.build(SerializerType.HESSIAN.name()));
+        message.setBody(request);
+        return RequestMetaData.builder()
+                .rpcMessage(message)
+                .serverAddr(address().getHostString())
+                .port(address().getPort())
+                .timeout(timeout)
+                .build();
+    }
+
+    /**
+     * 将第一个参数原样返回, 忽略握手与心跳请求; hang 方法不响应, delay 方法在参数指定的毫秒数之后响应
+     */
+    private static class EchoHandler extends SimpleChannelInboundHandler<RpcMessage> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, RpcMessage msg) {
+            MessageHeader header = msg.getMessageHeader();
+            if (header.getMessageType() != MessageType.REQUEST.getType()) {
+                return;
+            }
+            RpcRequest request = (RpcRequest) msg.getBody();
+            if ("hang".equals(request.getMethod())) {
+                return;
+            }
+            if ("delay".equals(request.getMethod())) {
+                ctx.executor().schedule(() -> reply(ctx, header, request),
+                        (Integer) request.getParameterValues()[0], TimeUnit.MILLISECONDS);
+                return;
+            }
+            reply(ctx, header, request);
+        }
+
+        private void reply(ChannelHandlerContext ctx, MessageHeader header, RpcRequest request) {
+            RpcResponse response = new RpcResponse();
+            response.setReturnValue(request.getParameterValues()[0]);
+            header.setMessageType(MessageType.RESPONSE.getType());
+            header.setMessageStatus(MessageStatus.SUCCESS.getStatus());
+            RpcMessage reply = new RpcMessage();
+            reply.setMessageHeader(header);
+            reply.setBody(response);
+            ctx.writeAndFlush(reply);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.lj.rpc.client.transport.netty;
+
+import com.lj.rpc.client.handler.RpcResponseHandler;
+import com.lj.rpc.core.exception.RpcException;
+import com.lj.rpc.core.protocol.RpcMessage;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 未完成调用表测试类
+ *
+ * @author liujue
+ */
+public class PendingCallsTest {
+
+    @Test
+    public void testFailAll() {
+        PendingCalls pending = new PendingCalls();
+        CompletableFuture<RpcMessage> first = new CompletableFuture<>();
+        CompletableFuture<RpcMessage> second = new CompletableFuture<>();
+        Assert.assertTrue(pending.add(1, first));
+        Assert.assertTrue(pending.add(2, second));
+        Assert.assertEquals(2, pending.size());
+
+        RpcException cause = new RpcException("closed");
+        pending.failAll(cause);
+        Assert.assertEquals(0, pending.size());
+        assertFailedWith(cause, first);
+        assertFailedWith(cause, second);
+
+        // 连接断开后登记的调用直接失败
+        CompletableFuture<RpcMessage> late = new CompletableFuture<>();
+        Assert.assertFalse(pending.add(3, late));
+        Assert.assertEquals(0, pending.size());
+        assertFailedWith(cause, late);
+    }
+
+    @Test
+    public void testFailOnChannelInactive() {
+        EmbeddedChannel channel = new EmbeddedChannel(new RpcResponseHandler());
+        CompletableFuture<RpcMessage> future = new CompletableFuture<>();
+        Assert.assertTrue(PendingCalls.get(channel).add(1, future));
+        channel.close();
+        Assert.assertTrue(future.isCompletedExceptionally());
+        Assert.assertEquals(0, PendingCalls.get(channel).size());
+    }
+
+    @Test
+    public void testFailIgnoresReplacedCall() {
+        PendingCalls pending = new PendingCalls();
+        CompletableFuture<RpcMessage> stale = new CompletableFuture<>();
+        CompletableFuture<RpcMessage> current = new CompletableFuture<>();
+        pending.add(1, current);
+        // 序列号对应的已不是该 future, 只使其失败而不移除当前的调用
+        pending.fail(1, stale, new RpcException("timeout"));
+        Assert.assertTrue(stale.isCompletedExceptionally());
+        Assert.assertEquals(1, pending.size());
+        Assert.assertSame(current, pending.remove(1));
+    }
+
+    private static void assertFailedWith(Throwable cause, CompletableFuture<RpcMessage> future) {
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertSame(cause, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Assert.fail();
+        }
+    }
+}
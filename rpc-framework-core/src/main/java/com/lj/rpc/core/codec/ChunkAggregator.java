@@ -0,0 +1,114 @@
+package com.lj.rpc.core.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+/**
+ * 连接级别的分块消息重组器
+ *
+ * <p>发送方在一次编码中连续写出同一条消息的全部分块, 同一连接上不同消息的分块不会交错,
+ * 因此每个连接同时只有一条正在重组的消息
+ *
+ * <p>分块以共享底层内存的副本 (retainedDuplicate) 追加到 CompositeByteBuf 中, 只增加引用计数,
+ * 不拷贝数据, 也不申请一块连续的大内存;
+ * 重组后的总长度超过上限时丢弃整条消息
+ *
+ * <p>只在连接所属的 EventLoop 线程中读写, 因此无需同步
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/8/5 10:40
+ */
+public class ChunkAggregator {
+
+    private static final AttributeKey<ChunkAggregator> KEY = AttributeKey.valueOf("chunkAggregator");
+
+    /**
+     * 正在重组的消息正文, 没有时为 null
+     */
+    private CompositeByteBuf body;
+
+    private int sequenceId;
+
+    private byte messageType;
+
+    /**
+     * 获取连接对应的重组器, 不存在时创建
+     *
+     * @param channel 连接
+     * @return 重组器
+     */
+    public static ChunkAggregator get(Channel channel) {
+        Attribute<ChunkAggregator> attr = channel.attr(KEY);
+        ChunkAggregator aggregator = attr.get();
+        if (aggregator == null) {
+            aggregator = new ChunkAggregator();
+            ChunkAggregator exist = attr.setIfAbsent(aggregator);
+            if (exist != null) {
+                aggregator = exist;
+            }
+        }
+        return aggregator;
+    }
+
+    /**
+     * 释放连接上尚未重组完成的消息, 连接关闭时调用
+     *
+     * @param channel 连接
+     */
+    public static void release(Channel channel) {
+        if (channel.hasAttr(KEY)) {
+            channel.attr(KEY).get().release();
+        }
+    }
+
+    /**
+     * 追加一个分块
+     *
+     * @param alloc            内存分配器
+     * @param sequenceId       消息序列号
+     * @param messageType      原消息类型
+     * @param last             是否为最后一个分块
+     * @param chunk            分块数据, 追加的是其副本, 调用方仍负责释放 chunk 本身
+     * @param maxMessageLength 重组后的最大长度
+     * @return 最后一个分块到达时返回重组后的正文 (由调用方释放), 否则返回 null
+     */
+    public ByteBuf append(ByteBufAllocator alloc, int sequenceId, byte messageType, boolean last, ByteBuf chunk,
+                          int maxMessageLength) {
+        if (body == null) {
+            // 分量数不设上限, 避免超过上限时 Netty 将已有分量合并为一块连续的大内存
+            body = alloc.compositeBuffer(Integer.MAX_VALUE);
+            this.sequenceId = sequenceId;
+            this.messageType = messageType;
+        } else if (this.sequenceId != sequenceId || this.messageType != messageType) {
+            release();
+            throw new CorruptedFrameException(String.format(
+                    "The chunk of message %d arrived before message %d was completed.", sequenceId, this.sequenceId));
+        }
+        if ((long) body.readableBytes() + chunk.readableBytes() > maxMessageLength) {
+            release();
+            throw new TooLongFrameException(String.format("The chunked message %d exceeds %d bytes.",
+                    sequenceId, maxMessageLength));
+        }
+        body.addComponent(true, chunk.retainedDuplicate());
+        if (!last) {
+            return null;
+        }
+        ByteBuf result = body;
+        body = null;
+        return result;
+    }
+
+    private void release() {
+        if (body != null) {
+            body.release();
+            body = null;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.lj.rpc.core.codec;
+
+import com.lj.rpc.core.entity.MethodDescriptor;
+import io.netty.channel.Channel;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 连接级别的方法编号表
+ *
+ * <p>发送方第一次调用某个方法时, 在请求信封中携带完整的方法描述并为其分配一个编号,
+ * 之后同一连接上的调用只携带编号; 接收方按照编号顺序记录方法描述。
+ * TCP 保证了同一连接上消息的顺序, 因此定义一定先于引用到达
+ *
+ * <p>除此之外, 服务端在握手时下发其导出的全部方法 (全局编号), 客户端获知后对这些方法只发送全局编号,
+ * 连接级别的编号只作为握手完成前或方法不在服务端方法表中时的回退
+ *
+ * <p>连接级别的编号表只在连接所属的 EventLoop 线程中读写, 因此无需同步; 全局方法表在握手时整体替换, 使用 volatile 发布
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/7/22 10:20
+ */
+public class InvocationTable {
+
+    private static final AttributeKey<InvocationTable> KEY = AttributeKey.valueOf("invocationTable");
+
+    /**
+     * 出站: 本连接上已经定义过的方法 -> 编号
+     */
+    private final Map<MethodDescriptor, Integer> outbound = new HashMap<>();
+
+    /**
+     * 入站: 编号 -> 对端定义的方法
+     */
+    private final List<MethodDescriptor> inbound = new ArrayList<>();
+
+    /**
+     * 服务端: 握手时下发给对端的方法表, 下标即全局编号
+     */
+    private volatile MethodDescriptor[] exported;
+
+    /**
+     * 客户端: 握手获知的对端方法 -> 全局编号
+     */
+    private volatile Map<MethodDescriptor, Integer> remote;
+
+    /**
+     * 获取连接对应的方法编号表, 不存在时创建
+     *
+     * @param channel 连接
+     * @return 方法编号表
+     */
+    public static InvocationTable get(Channel channel) {
+        Attribute<InvocationTable> attr = channel.attr(KEY);
+        InvocationTable table = attr.get();
+        if (table == null) {
+            table = new InvocationTable();
+            InvocationTable exist = attr.setIfAbsent(table);
+            if (exist != null) {
+                table = exist;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * 查询方法在出站方向上的编号
+     *
+     * @param descriptor 方法描述
+     * @return 编号, 尚未定义时返回 null
+     */
+    public Integer getOutboundId(MethodDescriptor descriptor) {
+        return outbound.get(descriptor);
+    }
+
+    /**
+     * 下一个可分配的出站编号
+     */
+    public int nextOutboundId() {
+        return outbound.size();
+    }
+
+    /**
+     * 记录出站方向上的方法定义, 需在定义成功写出后调用
+     */
+    public void defineOutbound(MethodDescriptor descriptor, int id) {
+        outbound.put(descriptor, id);
+    }
+
+    /**
+     * 记录对端定义的方法
+     */
+    public void defineInbound(int id, MethodDescriptor descriptor) {
+        if (id != inbound.size()) {
+            throw new IllegalStateException(String.format("Unexpected method id %d, expect %d.", id, inbound.size()));
+        }
+        inbound.add(descriptor);
+    }
+
+    /**
+     * 根据编号获取对端定义的方法
+     *
+     * @param id 编号
+     * @return 方法描述
+     */
+    public MethodDescriptor getInbound(int id) {
+        if (id < 0 || id >= inbound.size()) {
+            throw new IllegalStateException(String.format("Undefined method id %d.", id));
+        }
+        return inbound.get(id);
+    }
+
+    /**
+     * 服务端记录握手时下发的方法表
+     *
+     * @param descriptors 方法表, 下标即全局编号
+     */
+    public void setExported(MethodDescriptor[] descriptors) {
+        this.exported = descriptors;
+    }
+
+    /**
+     * 根据全局编号获取服务端导出的方法
+     *
+     * @param id 全局编号
+     * @return 方法描述
+     */
+    public MethodDescriptor getExported(int id) {
+        MethodDescriptor[] descriptors = exported;
+        if (descriptors == null || id < 0 || id >= descriptors.length) {
+            throw new IllegalStateException(String.format("Undefined global method id %d.", id));
+        }
+        return descriptors[id];
+    }
+
+    /**
+     * 客户端记录握手获知的方法表, 本地无法加载参数类型的方法 (为 null) 会被忽略
+     *
+     * @param descriptors 方法表, 下标即全局编号
+     */
+    public void setRemote(MethodDescriptor[] descriptors) {
+        Map<MethodDescriptor, Integer> ids = new HashMap<>(descriptors.length * 2);
+        for (int i = 0; i < descriptors.length; i++) {
+            if (descriptors[i] != null) {
+                ids.put(descriptors[i], i);
+            }
+        }
+        this.remote = ids;
+    }
+
+    /**
+     * 查询方法的全局编号
+     *
+     * @param descriptor 方法描述
+     * @return 全局编号, 握手尚未完成或对端未导出该方法时返回 null
+     */
+    public Integer getRemoteId(MethodDescriptor descriptor) {
+        Map<MethodDescriptor, Integer> ids = remote;
+        return ids == null ? null : ids.get(descriptor);
+    }
+}
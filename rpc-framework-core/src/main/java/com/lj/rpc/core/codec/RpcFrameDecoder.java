@@ -1,10 +1,14 @@
 package com.lj.rpc.core.codec;
 
+import com.lj.rpc.core.constant.ProtocolConstants;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 
 /**
  * 自定义的 RPC 帧解码器, 用于解决黏包半包问题
  *
+ * <p>单帧长度超过上限时抛出 TooLongFrameException; 正文较大的消息由发送方拆分为多个 CHUNK 帧,
+ * 因此上限只需大于对端的分块大小, 无需容纳完整的消息
+ *
  * @author liujue
  * @version 1.0
  * @date 2024/1/26 16:02
@@ -13,10 +17,19 @@ import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 public class RpcFrameDecoder extends LengthFieldBasedFrameDecoder {
 
     /**
-     * 根据自定义的协议设置的参数
+     * 根据自定义的协议设置的参数, 单帧最大长度使用默认值
      */
     public RpcFrameDecoder() {
-        this(1024, 12, 4, 0, 0);
+        this(ProtocolConstants.DEFAULT_MAX_FRAME_LENGTH);
+    }
+
+    /**
+     * 根据自定义的协议设置的参数
+     *
+     * @param maxFrameLength 单帧最大长度 (含协议头)
+     */
+    public RpcFrameDecoder(int maxFrameLength) {
+        this(maxFrameLength, ProtocolConstants.BODY_LENGTH_OFFSET, 4, 0, 0);
     }
 
     /**
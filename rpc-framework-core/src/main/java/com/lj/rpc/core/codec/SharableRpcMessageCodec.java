@@ -1,19 +1,30 @@
 package com.lj.rpc.core.codec;
 
+import com.lj.rpc.core.compress.Compressor;
+import com.lj.rpc.core.entity.MethodDescriptor;
 import com.lj.rpc.core.entity.RpcRequest;
 import com.lj.rpc.core.entity.RpcResponse;
 import com.lj.rpc.core.constant.ProtocolConstants;
+import com.lj.rpc.core.enums.CompressType;
 import com.lj.rpc.core.enums.MessageType;
-import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.exception.RpcException;
 import com.lj.rpc.core.protocol.MessageHeader;
 import com.lj.rpc.core.protocol.RpcMessage;
 import com.lj.rpc.core.serialization.Serialization;
+import com.lj.rpc.core.factory.CompressorFactory;
 import com.lj.rpc.core.factory.SerializationFactory;
+import com.lj.rpc.core.util.ServiceUtils;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.handler.codec.TooLongFrameException;
+import lombok.extern.slf4j.Slf4j;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
@@ -22,52 +33,272 @@ import java.util.List;
  *
  * <p>必须和 LengthFieldBasedFrameDecoder 一起使用，确保接到的 ByteBuf 消息是完整的
  *
- * <p>可共享, 无需保存 ByteBuf 的状态信息
+ * <p>可共享, 无需保存 ByteBuf 的状态信息; 连接级别的方法编号保存在 {@link InvocationTable} 中
+ *
+ * <p>正文超过分块大小的消息拆分为多个 {@link MessageType#CHUNK} 帧: 协议头与原消息相同 (消息类型为 CHUNK),
+ * 正文为 1 字节 原消息类型 + 1 字节 是否为最后一块 + 分块数据; 接收方由 {@link ChunkAggregator} 重组后再解码。
+ * 正文不超过分块大小的消息编码到普通的 ByteBuf 中; 超过时改为编码到按需追加组件的 CompositeByteBuf 中,
+ * 发送方与接收方 (以 CompositeByteBuf 重组) 都不申请一块与消息等长的连续内存, 分块帧只引用正文的切片, 不拷贝正文。
+ * 正文超过最大消息长度的消息在发送前即编码失败, 不会发出被对端拒绝的分块
+ *
+ * <p>配置了压缩算法时, 正文超过压缩阈值的消息压缩后再发送 (先于分块), 协议头中记录压缩方式,
+ * 正文为 4 字节 原正文长度 + 压缩数据; 压缩后没有变小的消息仍按原样发送。
+ * 未达到阈值的消息以及协议头中压缩方式为 0 的消息不经过压缩与解压
  *
  * @author liujue
  * @version 1.0
  * @date 2024/1/26 16:08
  */
+@Slf4j
 @ChannelHandler.Sharable
 public class SharableRpcMessageCodec extends MessageToMessageCodec<ByteBuf, RpcMessage> {
 
+    private static final byte METHOD_GLOBAL = 0;
+
+    private static final byte METHOD_LOCAL = 1;
+
+    private static final byte RESULT_VALUE = 0;
+
+    private static final byte RESULT_EXCEPTION = 1;
+
+    private static final Class<?>[] EMPTY_TYPES = new Class<?>[0];
+
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    /**
+     * 分块帧正文的头部: 1 字节 原消息类型 + 1 字节 是否为最后一块
+     */
+    private static final int CHUNK_HEADER_LENGTH = 2;
+
+    /**
+     * 出站缓冲区的初始容量
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * 分块大小, 不大于 0 时不分块
+     */
+    private final int chunkSize;
+
+    /**
+     * 分块消息重组后的最大长度
+     */
+    private final int maxMessageLength;
+
+    /**
+     * 出站消息使用的压缩算法, 不压缩时为 null
+     */
+    private final Compressor compressor;
+
+    /**
+     * 压缩阈值, 正文超过该长度时才压缩
+     */
+    private final int compressThreshold;
+
+    public SharableRpcMessageCodec() {
+        this(ProtocolConstants.DEFAULT_CHUNK_SIZE, ProtocolConstants.DEFAULT_MAX_MESSAGE_LENGTH);
+    }
+
+    /**
+     * 出站消息不压缩
+     *
+     * @param chunkSize        分块大小, 正文超过该长度的消息拆分为多个分块帧发送, 不大于 0 时不分块;
+     *                         分块帧的长度 (分块大小 + 19 字节) 不能超过对端的单帧最大长度
+     * @param maxMessageLength 收发消息正文的最大长度, 接收时为分块消息重组后 (以及压缩消息解压后) 的长度
+     */
+    public SharableRpcMessageCodec(int chunkSize, int maxMessageLength) {
+        this(chunkSize, maxMessageLength, CompressType.NONE.getType(), ProtocolConstants.DEFAULT_COMPRESS_THRESHOLD);
+    }
+
+    /**
+     * @param chunkSize         分块大小, 正文超过该长度的消息拆分为多个分块帧发送, 不大于 0 时不分块;
+     *                          分块帧的长度 (分块大小 + 19 字节) 不能超过对端的单帧最大长度
+     * @param maxMessageLength  收发消息正文的最大长度, 接收时为分块消息重组后 (以及压缩消息解压后) 的长度
+     * @param compressType      出站消息使用的压缩类型编号, 0 表示不压缩
+     * @param compressThreshold 压缩阈值, 正文超过该长度时才压缩
+     */
+    public SharableRpcMessageCodec(int chunkSize, int maxMessageLength, byte compressType, int compressThreshold) {
+        this.chunkSize = chunkSize;
+        this.maxMessageLength = maxMessageLength;
+        this.compressor = compressType == CompressType.NONE.getType()
+                ? null : CompressorFactory.getCompressor(compressType);
+        this.compressThreshold = compressThreshold;
+    }
+
     /**
      * 将 RpcMessage 对象编码为 ByteBuf 对象
      * <p>出站处理, 构造协议头
      */
     @Override
     protected void encode(ChannelHandlerContext ctx, RpcMessage rpcMessage, List<Object> list) {
-        ByteBuf buf = ctx.alloc().buffer();
         MessageHeader header = rpcMessage.getMessageHeader();
+        // 压缩方式由本端决定, 不沿用请求消息中的值
+        header.setCompressType(CompressType.NONE.getType());
+        ByteBuf buf = encodeMessage(ctx, rpcMessage);
+        int bodyLength = buf.readableBytes() - ProtocolConstants.HEADER_LENGTH;
+        // 未达到阈值的消息不经过压缩
+        if (compressor != null && bodyLength > compressThreshold) {
+            buf = compress(ctx, header, buf, bodyLength);
+            bodyLength = buf.readableBytes() - ProtocolConstants.HEADER_LENGTH;
+        }
+        header.setBodyLength(bodyLength);
+
+        // 传递给下一个出站处理器
+        if (chunkSize > 0 && bodyLength > chunkSize) {
+            writeChunks(ctx, header, buf, list);
+        } else {
+            list.add(buf);
+        }
+    }
+
+    /**
+     * 编码协议头与正文
+     *
+     * <p>先编码到容量上限为一个分块的普通 ByteBuf 中; 正文超过分块大小时改为编码到 CompositeByteBuf 中,
+     * 容量不足时追加新的组件而不是扩容拷贝。只有超过分块大小的消息会重新编码, 且浪费的部分不超过一个分块
+     */
+    private ByteBuf encodeMessage(ChannelHandlerContext ctx, RpcMessage rpcMessage) {
+        if (chunkSize <= 0) {
+            return writeMessage(ctx, rpcMessage, ctx.alloc().buffer());
+        }
+        int maxCapacity = ProtocolConstants.HEADER_LENGTH + chunkSize;
+        try {
+            return writeMessage(ctx, rpcMessage,
+                    ctx.alloc().buffer(Math.min(INITIAL_CAPACITY, maxCapacity), maxCapacity));
+        } catch (RuntimeException e) {
+            if (!isOverflow(e)) {
+                throw e;
+            }
+        }
+        return writeMessage(ctx, rpcMessage, ctx.alloc().compositeBuffer(Integer.MAX_VALUE));
+    }
+
+    private ByteBuf writeMessage(ChannelHandlerContext ctx, RpcMessage rpcMessage, ByteBuf buf) {
+        MessageHeader header = rpcMessage.getMessageHeader();
+        // 正文长度先占位, 待正文写入后回填
+        int lengthIndex = buf.writerIndex() + ProtocolConstants.BODY_LENGTH_OFFSET;
+        // 不固定字节 消息体部分, 根据序列化方式将正文直接序列化到 buf 中
+        Object body = rpcMessage.getBody();
+        Serialization serialization =
+                SerializationFactory.getSerialization(header.getSerializerType());
+        MessageType type = MessageType.parseType(header.getMessageType());
+        try {
+            writeHeader(buf, header, header.getMessageType(), 0);
+            if (type == MessageType.REQUEST) {
+                encodeRequest(InvocationTable.get(ctx.channel()), (RpcRequest) body, serialization, buf);
+            } else if (type == MessageType.RESPONSE) {
+                encodeResponse((RpcResponse) body, serialization, buf);
+            } else if (type == MessageType.HANDSHAKE_RESPONSE) {
+                encodeHandshake((MethodDescriptor[]) body, buf);
+            } else if (type != MessageType.HANDSHAKE_REQUEST) {
+                serialization.serialize(body, buf);
+            }
+            checkLength(buf);
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+        buf.setInt(lengthIndex, buf.writerIndex() - lengthIndex - Integer.BYTES);
+        return buf;
+    }
+
+    /**
+     * 超过最大消息长度的消息会被对端拒绝, 在发送前失败, 调用方无需等到超时
+     */
+    private void checkLength(ByteBuf buf) {
+        int bodyLength = buf.readableBytes() - ProtocolConstants.HEADER_LENGTH;
+        if (bodyLength > maxMessageLength) {
+            throw new EncoderException(String.format("The message body length %d exceeds the max message length %d.",
+                    bodyLength, maxMessageLength));
+        }
+    }
+
+    /**
+     * 写入超过了缓冲区的容量上限; 序列化器会把该异常包装为自己的异常, 因此沿异常链查找
+     */
+    private static boolean isOverflow(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IndexOutOfBoundsException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 压缩已编码的消息正文, 返回新的消息并释放原消息; 压缩后没有变小时返回原消息。
+     * 大消息的压缩结果同样写入 CompositeByteBuf 中
+     */
+    private ByteBuf compress(ChannelHandlerContext ctx, MessageHeader header, ByteBuf message, int bodyLength) {
+        ByteBuf compressed = message instanceof CompositeByteBuf
+                ? ctx.alloc().compositeBuffer(Integer.MAX_VALUE) : ctx.alloc().buffer();
+        try {
+            header.setCompressType(compressor.getType());
+            writeHeader(compressed, header, header.getMessageType(), 0);
+            // 4 字节 原正文长度
+            compressed.writeInt(bodyLength);
+            compressor.compress(message.slice(message.readerIndex() + ProtocolConstants.HEADER_LENGTH, bodyLength),
+                    compressed);
+        } catch (RuntimeException e) {
+            compressed.release();
+            message.release();
+            throw e;
+        }
+        int compressedLength = compressed.readableBytes() - ProtocolConstants.HEADER_LENGTH;
+        if (compressedLength >= bodyLength) {
+            header.setCompressType(CompressType.NONE.getType());
+            compressed.release();
+            return message;
+        }
+        compressed.setInt(compressed.readerIndex() + ProtocolConstants.BODY_LENGTH_OFFSET, compressedLength);
+        message.release();
+        return compressed;
+    }
+
+    /**
+     * 将已编码的消息拆分为多个分块帧, 每一帧由新的协议头与原消息正文的切片组成, 正文本身不拷贝
+     */
+    private void writeChunks(ChannelHandlerContext ctx, MessageHeader header, ByteBuf message, List<Object> list) {
+        try {
+            int offset = message.readerIndex() + ProtocolConstants.HEADER_LENGTH;
+            int end = message.writerIndex();
+            while (offset < end) {
+                int length = Math.min(chunkSize, end - offset);
+                boolean last = offset + length == end;
+                ByteBuf head = ctx.alloc().buffer(ProtocolConstants.HEADER_LENGTH + CHUNK_HEADER_LENGTH);
+                writeHeader(head, header, MessageType.CHUNK.getType(), CHUNK_HEADER_LENGTH + length);
+                head.writeByte(header.getMessageType());
+                head.writeBoolean(last);
+                CompositeByteBuf frame = ctx.alloc().compositeBuffer(2);
+                frame.addComponents(true, head, message.retainedSlice(offset, length));
+                list.add(frame);
+                offset += length;
+            }
+        } finally {
+            message.release();
+        }
+    }
+
+    /**
+     * 写出协议头
+     */
+    private static void writeHeader(ByteBuf buf, MessageHeader header, byte messageType, int bodyLength) {
         // 4 字节 魔数
         buf.writeBytes(header.getMagicNum());
         // 1 字节 版本号
         buf.writeByte(header.getVersion());
         // 1 字节 序列化方式
         buf.writeByte(header.getSerializerType());
+        // 1 字节 压缩方式
+        buf.writeByte(header.getCompressType());
         // 1 字节 消息类型
-        buf.writeByte(header.getMessageType());
+        buf.writeByte(messageType);
         // 1 字节 状态类型
         buf.writeByte(header.getMessageStatus());
         // 4 字节 消息序列号
         buf.writeInt(header.getSequenceId());
-
-        // 根据 body 长度计算正文长度
-        Object body = rpcMessage.getBody();
-        // 根据序列化方式将正文部分序列化成字节数组
-        Serialization serialization =
-                SerializationFactory.getSerialization(SerializerType.parseType(header.getSerializerType()));
-        byte[] bytes = serialization.serialize(body);
-        header.setBodyLength(bytes.length);
-
         // 4 字节 正文长度
-        buf.writeInt(header.getBodyLength());
-
-        // 不固定字节 消息体部分
-        buf.writeBytes(bytes);
-
-        // 传递给下一个出站处理器
-        list.add(buf);
+        buf.writeInt(bodyLength);
     }
 
     /**
@@ -92,6 +323,8 @@ public class SharableRpcMessageCodec extends MessageToMessageCodec<ByteBuf, RpcM
         }
         // 1 字节 序列化方式
         byte serializerType = byteBuf.readByte();
+        // 1 字节 压缩方式
+        byte compressType = byteBuf.readByte();
         // 1 字节 消息类型
         byte messageType = byteBuf.readByte();
         // 1 字节 状态类型
@@ -100,41 +333,281 @@ public class SharableRpcMessageCodec extends MessageToMessageCodec<ByteBuf, RpcM
         int sequenceId = byteBuf.readInt();
         // 4 字节 正文长度
         int bodyLength = byteBuf.readInt();
-        // 正文部分
-        byte[] bytes = new byte[bodyLength];
-        byteBuf.readBytes(bytes, 0, bodyLength);
-
-        // 组合上述信息, 构造协议头对象 MessageHeader
-        MessageHeader header = MessageHeader.builder()
-                .magicNum(magicNum)
-                .version(version)
-                .serializerType(serializerType)
-                .messageType(messageType)
-                .messageStatus(messageStatus)
-                .sequenceId(sequenceId)
-                .bodyLength(bodyLength)
-                .build();
-
-        // 获取序列化算法
-        Serialization serialization =
-                SerializationFactory.getSerialization(SerializerType.parseType(serializerType));
+        // 正文部分, 直接切片引用帧内数据, 不再拷贝到中间字节数组;
+        // 反序列化在 decode 返回 (帧被释放) 之前完成, 因此无需 retain
+        ByteBuf bodyBuf = byteBuf.readSlice(bodyLength);
 
-        // 构造 RpcMessage 对象
+        // 分块帧: 追加到重组器中, 最后一块到达后按原消息类型解码重组后的正文
+        ByteBuf aggregated = null;
+        if (messageType == MessageType.CHUNK.getType()) {
+            messageType = bodyBuf.readByte();
+            boolean last = bodyBuf.readBoolean();
+            aggregated = ChunkAggregator.get(ctx.channel())
+                    .append(ctx.alloc(), sequenceId, messageType, last, bodyBuf, maxMessageLength);
+            if (aggregated == null) {
+                return;
+            }
+            bodyBuf = aggregated;
+            bodyLength = aggregated.readableBytes();
+        }
+
+        ByteBuf decompressed = null;
         RpcMessage msg = new RpcMessage();
-        msg.setMessageHeader(header);
+        try {
+            // 压缩方式为 0 的消息不经过解压
+            if (compressType != CompressType.NONE.getType()) {
+                decompressed = decompress(ctx.alloc(), compressType, bodyBuf);
+                bodyBuf = decompressed;
+                bodyLength = decompressed.readableBytes();
+            }
+
+            // 组合上述信息, 构造协议头对象 MessageHeader
+            MessageHeader header = MessageHeader.builder()
+                    .magicNum(magicNum)
+                    .version(version)
+                    .serializerType(serializerType)
+                    .compressType(compressType)
+                    .messageType(messageType)
+                    .messageStatus(messageStatus)
+                    .sequenceId(sequenceId)
+                    .bodyLength(bodyLength)
+                    .build();
 
-        // 根据不同的消息类型进行反序列化
-        MessageType type = MessageType.parseType(messageType);
-        if (type == MessageType.REQUEST) {
-            RpcRequest body = serialization.deserialize(RpcRequest.class, bytes);
-            msg.setBody(body);
-        } else if (type == MessageType.RESPONSE) {
-            RpcResponse body = serialization.deserialize(RpcResponse.class, bytes);
-            msg.setBody(body);
+            // 获取序列化算法
+            Serialization serialization =
+                    SerializationFactory.getSerialization(serializerType);
+
+            // 构造 RpcMessage 对象
+            msg.setMessageHeader(header);
+
+            // 根据不同的消息类型进行反序列化
+            MessageType type = MessageType.parseType(messageType);
+            if (type == MessageType.REQUEST) {
+                msg.setBody(decodeRequest(InvocationTable.get(ctx.channel()), serialization, bodyBuf));
+            } else if (type == MessageType.RESPONSE) {
+                msg.setBody(decodeResponse(serialization, bodyBuf));
+            } else if (type == MessageType.HANDSHAKE_RESPONSE) {
+                msg.setBody(decodeHandshake(bodyBuf));
+            }
+        } finally {
+            if (decompressed != null) {
+                decompressed.release();
+            }
+            if (aggregated != null) {
+                aggregated.release();
+            }
         }
 
         // 传递给下一个入站处理器
         list.add(msg);
     }
+
+    /**
+     * 解压正文: 4 字节 原正文长度 + 压缩数据, 返回的缓冲区由调用方释放
+     */
+    private ByteBuf decompress(ByteBufAllocator alloc, byte compressType, ByteBuf in) {
+        Compressor compressor = CompressorFactory.getCompressor(compressType);
+        int length = in.readInt();
+        if (length < 0 || length > maxMessageLength) {
+            throw new TooLongFrameException(String.format("The decompressed body of %d bytes exceeds %d bytes.",
+                    length, maxMessageLength));
+        }
+        // 解压后超过分块大小的正文写入 CompositeByteBuf, 分量数不设上限, 避免 Netty 将已有分量合并为一块连续的大内存
+        ByteBuf out = chunkSize > 0 && length > chunkSize
+                ? alloc.compositeBuffer(Integer.MAX_VALUE) : alloc.buffer(length);
+        try {
+            compressor.decompress(in, out, length);
+            return out;
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 释放尚未重组完成的分块
+        ChunkAggregator.release(ctx.channel());
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * 请求信封: 1 字节 编号类型 + 4 字节 方法编号 + [方法定义] + 参数值
+     *
+     * <p>握手完成后, 服务端导出的方法只写出其全局编号; 否则使用连接级别的编号:
+     * 同一连接上第一次调用某个方法时, 编号以取反的形式 (负数) 写出, 其后紧跟方法定义:
+     * 服务名 + 方法名 + 1 字节 参数个数 + 各参数类型名; 之后的调用只写出非负的编号。
+     * 参数值交由序列化算法写出
+     */
+    private void encodeRequest(InvocationTable table, RpcRequest request, Serialization serialization, ByteBuf buf) {
+        Class<?>[] types = request.getParameterTypes() == null ? EMPTY_TYPES : request.getParameterTypes();
+        Object[] values = request.getParameterValues() == null ? EMPTY_VALUES : request.getParameterValues();
+        MethodDescriptor descriptor = new MethodDescriptor(request.getServiceName(), request.getMethod(), types);
+        Integer remoteId = table.getRemoteId(descriptor);
+        if (remoteId != null) {
+            buf.writeByte(METHOD_GLOBAL);
+            buf.writeInt(remoteId);
+            serialization.serializeArguments(values, types, buf);
+            return;
+        }
+        buf.writeByte(METHOD_LOCAL);
+        Integer id = table.getOutboundId(descriptor);
+        boolean define = id == null;
+        if (!define) {
+            buf.writeInt(id);
+        } else {
+            id = table.nextOutboundId();
+            buf.writeInt(~id);
+            writeDescriptor(buf, descriptor);
+        }
+        serialization.serializeArguments(values, types, buf);
+        // 整个信封写出成功且未超过最大消息长度时才登记, 失败的定义不会被后续调用引用
+        if (define) {
+            checkLength(buf);
+            table.defineOutbound(descriptor, id);
+        }
+    }
+
+    private RpcRequest decodeRequest(InvocationTable table, Serialization serialization, ByteBuf buf) {
+        byte kind = buf.readByte();
+        int id = buf.readInt();
+        MethodDescriptor descriptor;
+        RpcRequest request = new RpcRequest();
+        if (kind == METHOD_GLOBAL) {
+            descriptor = table.getExported(id);
+            request.setMethodId(id);
+        } else if (kind == METHOD_LOCAL) {
+            if (id < 0) {
+                // 参数类型无法加载的定义同样占用该编号, 否则之后的编号全部错位
+                descriptor = readDescriptor(buf);
+                table.defineInbound(~id, descriptor);
+            } else {
+                descriptor = table.getInbound(id);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown method id kind: " + kind);
+        }
+        request.setServiceName(descriptor.getServiceName());
+        request.setMethod(descriptor.getMethod());
+        if (descriptor.getParameterTypes() == null) {
+            // 无法解析参数值, 跳过参数部分, 由请求处理器直接返回失败响应
+            buf.skipBytes(buf.readableBytes());
+            request.setDecodeError(String.format("The parameter types of the method [%s] of the service [%s] "
+                    + "cannot be resolved on the server.", descriptor.getMethod(), descriptor.getServiceName()));
+            return request;
+        }
+        request.setParameterTypes(descriptor.getParameterTypes());
+        request.setParameterValues(serialization.deserializeArguments(descriptor.getParameterTypes(), buf));
+        return request;
+    }
+
+    /**
+     * 握手响应: 4 字节 方法个数 + 各方法定义, 下标即全局编号
+     */
+    private void encodeHandshake(MethodDescriptor[] descriptors, ByteBuf buf) {
+        buf.writeInt(descriptors.length);
+        for (MethodDescriptor descriptor : descriptors) {
+            writeDescriptor(buf, descriptor);
+        }
+    }
+
+    private MethodDescriptor[] decodeHandshake(ByteBuf buf) {
+        MethodDescriptor[] descriptors = new MethodDescriptor[buf.readInt()];
+        for (int i = 0; i < descriptors.length; i++) {
+            MethodDescriptor descriptor = readDescriptor(buf);
+            // 本地没有对应参数类型的方法不可能被调用, 跳过即可
+            if (descriptor.getParameterTypes() != null) {
+                descriptors[i] = descriptor;
+            }
+        }
+        return descriptors;
+    }
+
+    /**
+     * 响应信封: 1 字节 结果标识 + 返回值或异常信息
+     *
+     * <p>正常返回时由序列化算法写出返回值; 调用异常时只写出异常信息, 由对端还原为 RpcException
+     */
+    private void encodeResponse(RpcResponse response, Serialization serialization, ByteBuf buf) {
+        Exception exception = response.getExceptionValue();
+        if (exception == null) {
+            buf.writeByte(RESULT_VALUE);
+            serialization.serializeResult(response.getReturnValue(), buf);
+        } else {
+            buf.writeByte(RESULT_EXCEPTION);
+            String message = exception.getMessage() == null ? exception.toString() : exception.getMessage();
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            buf.writeInt(bytes.length);
+            buf.writeBytes(bytes);
+        }
+    }
+
+    private RpcResponse decodeResponse(Serialization serialization, ByteBuf buf) {
+        RpcResponse response = new RpcResponse();
+        byte flag = buf.readByte();
+        if (flag == RESULT_VALUE) {
+            response.setReturnValue(serialization.deserializeResult(buf));
+        } else if (flag == RESULT_EXCEPTION) {
+            response.setExceptionValue(new RpcException(buf.readCharSequence(buf.readInt(), StandardCharsets.UTF_8).toString()));
+        } else {
+            throw new IllegalArgumentException("Unknown response flag: " + flag);
+        }
+        return response;
+    }
+
+    /**
+     * 方法定义: 服务名 + 方法名 + 1 字节 参数个数 + 各参数类型名
+     */
+    private static void writeDescriptor(ByteBuf buf, MethodDescriptor descriptor) {
+        Class<?>[] types = descriptor.getParameterTypes();
+        if (types.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many parameters: " + types.length);
+        }
+        writeString(buf, descriptor.getServiceName());
+        writeString(buf, descriptor.getMethod());
+        buf.writeByte(types.length);
+        for (Class<?> type : types) {
+            writeString(buf, type.getName());
+        }
+    }
+
+    /**
+     * 读取方法定义, 总是读完整个定义以保证缓冲区位置正确; 参数类型无法加载时返回的方法描述中参数类型为 null
+     */
+    private static MethodDescriptor readDescriptor(ByteBuf buf) {
+        String serviceName = readString(buf);
+        String method = readString(buf);
+        String[] typeNames = new String[buf.readByte()];
+        for (int i = 0; i < typeNames.length; i++) {
+            typeNames[i] = readString(buf);
+        }
+        Class<?>[] types = new Class<?>[typeNames.length];
+        for (int i = 0; i < types.length; i++) {
+            try {
+                types[i] = ServiceUtils.forName(typeNames[i]);
+            } catch (ClassNotFoundException e) {
+                log.debug("The method [{}] of the service [{}] cannot be resolved locally, unknown parameter type: {}",
+                        method, serviceName, typeNames[i]);
+                return new MethodDescriptor(serviceName, method, null);
+            }
+        }
+        return new MethodDescriptor(serviceName, method, types);
+    }
+
+    /**
+     * 2 字节 长度 + UTF-8 字节
+     */
+    private static void writeString(ByteBuf buf, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String is too long: " + bytes.length);
+        }
+        buf.writeShort(bytes.length);
+        buf.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuf buf) {
+        return buf.readCharSequence(buf.readUnsignedShort(), StandardCharsets.UTF_8).toString();
+    }
 }
 
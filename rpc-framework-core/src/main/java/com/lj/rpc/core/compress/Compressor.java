@@ -0,0 +1,43 @@
+package com.lj.rpc.core.compress;
+
+import com.lj.rpc.core.extension.SPI;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 压缩算法实现接口
+ *
+ * <p>由编解码器对超过阈值的消息正文调用, 实现类只有一个长期存活的实例, 必须是线程安全的
+ *
+ * @author liujue
+ * @date 2024/08/08
+ */
+@SPI
+public interface Compressor {
+
+    /**
+     * 获取该压缩算法在协议头中使用的类型编号
+     *
+     * <p>内置算法的编号见 {@link com.lj.rpc.core.enums.CompressType}, 编号 0 表示不压缩;
+     * 自定义的压缩算法 (如 LZ4, zstd) 只需在扩展文件中声明并返回一个未被占用的编号即可
+     *
+     * @return 压缩类型编号
+     */
+    byte getType();
+
+    /**
+     * 压缩 in 中全部可读的数据, 写入 out
+     *
+     * @param in  待压缩的数据, 可能由多个分量组成 (CompositeByteBuf)
+     * @param out 压缩结果从其 writerIndex 处开始写入
+     */
+    void compress(ByteBuf in, ByteBuf out);
+
+    /**
+     * 解压 in 中全部可读的数据, 写入 out
+     *
+     * @param in     待解压的数据
+     * @param out    解压结果从其 writerIndex 处开始写入
+     * @param length 解压后的长度, 实际长度与之不符时抛出 {@link com.lj.rpc.core.exception.CompressionException}
+     */
+    void decompress(ByteBuf in, ByteBuf out, int length);
+}
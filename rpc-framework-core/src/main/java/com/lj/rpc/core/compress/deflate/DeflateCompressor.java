@@ -0,0 +1,105 @@
+package com.lj.rpc.core.compress.deflate;
+
+import com.lj.rpc.core.compress.Compressor;
+import com.lj.rpc.core.enums.CompressType;
+import com.lj.rpc.core.exception.CompressionException;
+import io.netty.buffer.ByteBuf;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 基于 JDK 内置 zlib 实现的 DEFLATE 压缩算法
+ *
+ * <p>
+ * 使用最快的压缩级别, 以压缩率换取 CPU 开销; Deflater/Inflater 持有本地内存, 按线程复用, 每次调用后 reset,
+ * 输入输出经由线程复用的定长缓冲区分段处理, 不会为大消息分配完整的中间字节数组
+ * </p>
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/8/8 14:30
+ */
+public class DeflateCompressor implements Compressor {
+
+    /**
+     * 线程复用的输入输出缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ThreadLocal<Deflater> deflaterThreadLocal =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    private final ThreadLocal<Inflater> inflaterThreadLocal = ThreadLocal.withInitial(Inflater::new);
+
+    private final ThreadLocal<byte[]> inputThreadLocal = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final ThreadLocal<byte[]> outputThreadLocal = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    @Override
+    public byte getType() {
+        return CompressType.DEFLATE.getType();
+    }
+
+    @Override
+    public void compress(ByteBuf in, ByteBuf out) {
+        Deflater deflater = deflaterThreadLocal.get();
+        byte[] input = inputThreadLocal.get();
+        byte[] output = outputThreadLocal.get();
+        try {
+            while (in.isReadable()) {
+                int length = Math.min(input.length, in.readableBytes());
+                in.readBytes(input, 0, length);
+                deflater.setInput(input, 0, length);
+                while (!deflater.needsInput()) {
+                    out.writeBytes(output, 0, deflater.deflate(output));
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.writeBytes(output, 0, deflater.deflate(output));
+            }
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    @Override
+    public void decompress(ByteBuf in, ByteBuf out, int length) {
+        Inflater inflater = inflaterThreadLocal.get();
+        byte[] input = inputThreadLocal.get();
+        byte[] output = outputThreadLocal.get();
+        int remaining = length;
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (!in.isReadable()) {
+                        throw new CompressionException("The deflate stream is truncated.");
+                    }
+                    int n = Math.min(input.length, in.readableBytes());
+                    in.readBytes(input, 0, n);
+                    inflater.setInput(input, 0, n);
+                }
+                int n = inflater.inflate(output);
+                if (n == 0 && inflater.needsDictionary()) {
+                    throw new CompressionException("The deflate stream requires a preset dictionary.");
+                }
+                // 解压后的数据超过声明的长度时立即失败, 防止压缩炸弹
+                if (n > remaining) {
+                    throw new CompressionException(String.format("The decompressed body exceeds %d bytes.", length));
+                }
+                out.writeBytes(output, 0, n);
+                remaining -= n;
+            }
+        } catch (DataFormatException e) {
+            throw new CompressionException("Deflate decompress failed.", e);
+        } finally {
+            inflater.reset();
+        }
+        if (remaining != 0) {
+            throw new CompressionException(String.format("The decompressed body is %d bytes, expected %d.",
+                    length - remaining, length));
+        }
+    }
+}
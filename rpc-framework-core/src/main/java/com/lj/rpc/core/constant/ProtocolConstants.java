@@ -23,7 +23,38 @@ public class ProtocolConstants {
     /**
      * 版本号
      */
-    public static final byte VERSION = 1;
+    public static final byte VERSION = 3;
+
+    /**
+     * 协议头长度: 4 字节 魔数 + 1 字节 版本号 + 1 字节 序列化方式 + 1 字节 压缩方式 + 1 字节 消息类型
+     * + 1 字节 状态类型 + 4 字节 消息序列号 + 4 字节 正文长度
+     */
+    public static final int HEADER_LENGTH = 17;
+
+    /**
+     * 正文长度字段在协议头中的偏移量
+     */
+    public static final int BODY_LENGTH_OFFSET = 13;
+
+    /**
+     * 默认的单帧最大长度 (含协议头), 1 MB
+     */
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024 * 1024;
+
+    /**
+     * 默认的分块大小, 正文超过该长度的消息拆分为多个 CHUNK 帧发送, 64 KB
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * 默认的分块消息重组后的最大长度, 64 MB
+     */
+    public static final int DEFAULT_MAX_MESSAGE_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * 默认的压缩阈值, 正文超过该长度时才压缩, 4 KB
+     */
+    public static final int DEFAULT_COMPRESS_THRESHOLD = 4 * 1024;
 
     /**
      * 消息 id
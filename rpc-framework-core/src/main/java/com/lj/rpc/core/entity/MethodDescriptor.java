@@ -0,0 +1,35 @@
+package com.lj.rpc.core.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 方法描述实体类, 唯一确定一个可被远程调用的方法
+ *
+ * <p>请求信封中只在第一次调用时完整传输方法描述, 之后只传输其整数编号
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/7/22 10:15
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MethodDescriptor {
+
+    /**
+     * 服务名称: 服务名 + 版本号
+     */
+    private String serviceName;
+
+    /**
+     * 方法名称
+     */
+    private String method;
+
+    /**
+     * 参数类型
+     */
+    private Class<?>[] parameterTypes;
+}
@@ -35,4 +35,14 @@ public class RpcRequest implements Serializable {
      * 参数
      */
     private Object[] parameterValues;
+
+    /**
+     * 服务端分配的全局方法编号, 客户端通过握手获知; 仅在编解码器与请求处理器之间传递, 不参与序列化
+     */
+    private transient int methodId = -1;
+
+    /**
+     * 服务端解码失败的原因 (如参数类型无法加载), 非空时请求处理器直接返回失败响应; 不参与序列化
+     */
+    private transient String decodeError;
 }
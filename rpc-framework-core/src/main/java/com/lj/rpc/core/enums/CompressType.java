@@ -0,0 +1,47 @@
+package com.lj.rpc.core.enums;
+
+import lombok.Getter;
+
+/**
+ * 不同压缩算法的枚举类
+ *
+ * @author liujue
+ * @date 2024/08/08
+ */
+@Getter
+public enum CompressType {
+
+    /**
+     * 不压缩
+     */
+    NONE((byte) 0),
+
+    /**
+     * DEFLATE 压缩算法 (zlib 格式)
+     */
+    DEFLATE((byte) 1);
+
+    /**
+     * 类型
+     */
+    private final byte type;
+
+    CompressType(byte type) {
+        this.type = type;
+    }
+
+    /**
+     * 根据指定的压缩算法名称 (String) 得到对应的压缩算法枚举类 (CompressType)
+     *
+     * @param compressName 指定的压缩算法名称
+     * @return 压缩算法枚举类, 未找到时为 NONE
+     */
+    public static CompressType parseName(String compressName) {
+        for (CompressType compressType : CompressType.values()) {
+            if (compressType.name().equalsIgnoreCase(compressName)) {
+                return compressType;
+            }
+        }
+        return NONE;
+    }
+}
@@ -29,7 +29,22 @@ public enum MessageType {
     /**
      * 类型 3 表示心跳检测响应消息
      */
-    HEARTBEAT_RESPONSE((byte) 3);
+    HEARTBEAT_RESPONSE((byte) 3),
+
+    /**
+     * 类型 4 表示握手请求消息, 客户端建立连接后发送, 用于获取服务端的方法编号表
+     */
+    HANDSHAKE_REQUEST((byte) 4),
+
+    /**
+     * 类型 5 表示握手响应消息, 正文为服务端导出的全部方法描述, 下标即方法编号
+     */
+    HANDSHAKE_RESPONSE((byte) 5),
+
+    /**
+     * 类型 6 表示分块消息, 正文较大的消息拆分为多个分块帧依次发送, 序列号与原消息相同, 由接收方重组
+     */
+    CHUNK((byte) 6);
 
     private final byte type;
 
@@ -0,0 +1,28 @@
+package com.lj.rpc.core.exception;
+
+/**
+ * 压缩与解压过程中产生的异常
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/8/8 14:20
+ */
+public class CompressionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CompressionException() {
+    }
+
+    public CompressionException(String message) {
+        super(message);
+    }
+
+    public CompressionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public CompressionException(Throwable cause) {
+        super(cause);
+    }
+}
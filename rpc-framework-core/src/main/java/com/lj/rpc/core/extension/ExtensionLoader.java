@@ -7,9 +7,12 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -123,6 +126,15 @@ public class ExtensionLoader<T> {
         return (T) instance;
     }
 
+    /**
+     * 获取当前接口在扩展文件中声明的所有扩展名称
+     *
+     * @return 扩展名称集合
+     */
+    public Set<String> getSupportedExtensions() {
+        return Collections.unmodifiableSet(new TreeSet<>(getExtensionClasses().keySet()));
+    }
+
     /**
      * 根据 name (文件中定义的 key) 创建 Extension 实例
      *
@@ -0,0 +1,81 @@
+package com.lj.rpc.core.factory;
+
+import com.lj.rpc.core.compress.Compressor;
+import com.lj.rpc.core.enums.CompressType;
+import com.lj.rpc.core.extension.ExtensionLoader;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 压缩算法工厂，通过压缩类型编号获取相应的压缩算法实例
+ *
+ * <p>与 {@link SerializationFactory} 一致, 所有压缩算法都通过 {@link ExtensionLoader} 从扩展文件中加载,
+ * 每种算法只有一个长期存活的实例, 并按照协议头中的压缩类型编号 (byte) 直接索引
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/8/8 14:50
+ */
+public final class CompressorFactory {
+
+    /**
+     * 压缩类型编号 -> 压缩算法实例, 编号 0 (不压缩) 没有对应的实例
+     */
+    private static final Compressor[] COMPRESSORS = new Compressor[256];
+
+    /**
+     * 扩展名 (小写) -> 压缩类型编号
+     */
+    private static final Map<String, Byte> NAME_TO_TYPE = new HashMap<>();
+
+    static {
+        ExtensionLoader<Compressor> loader = ExtensionLoader.getExtensionLoader(Compressor.class);
+        for (String name : loader.getSupportedExtensions()) {
+            Compressor compressor = loader.getExtension(name);
+            int index = compressor.getType() & 0xFF;
+            if (index == CompressType.NONE.getType()) {
+                throw new IllegalStateException(String.format("Compress type 0 is reserved, but used by %s.",
+                        compressor.getClass().getName()));
+            }
+            Compressor exist = COMPRESSORS[index];
+            if (exist != null && exist != compressor) {
+                throw new IllegalStateException(String.format("Compress type %d is used by both %s and %s.",
+                        index, exist.getClass().getName(), compressor.getClass().getName()));
+            }
+            COMPRESSORS[index] = compressor;
+            NAME_TO_TYPE.put(name.toLowerCase(Locale.ROOT), compressor.getType());
+        }
+    }
+
+    private CompressorFactory() {
+
+    }
+
+    /**
+     * 根据压缩类型编号得到对应的压缩算法
+     *
+     * @param type 协议头中的压缩类型编号, 不能为 0
+     * @return 对应的压缩算法实现类
+     */
+    public static Compressor getCompressor(byte type) {
+        Compressor compressor = COMPRESSORS[type & 0xFF];
+        if (compressor == null) {
+            throw new IllegalArgumentException(String.format("The compress type %d is illegal.", type));
+        }
+        return compressor;
+    }
+
+    /**
+     * 根据压缩算法名称 (扩展文件中的 key, 忽略大小写) 得到其类型编号
+     * <p>未找到时与 {@link CompressType#parseName(String)} 保持一致, 退化为 NONE (不压缩)
+     *
+     * @param compressName 压缩算法名称
+     * @return 压缩类型编号
+     */
+    public static byte getType(String compressName) {
+        Byte type = compressName == null ? null : NAME_TO_TYPE.get(compressName.toLowerCase(Locale.ROOT));
+        return type != null ? type : CompressType.parseName(compressName).getType();
+    }
+}
@@ -0,0 +1,213 @@
+package com.lj.rpc.core.factory;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+/**
+ * 根据配置的传输方式创建 Netty 的事件循环组与 Channel 类型
+ *
+ * <p>
+ * 传输方式 (rpc.server.transport / rpc.client.transport) 可选:
+ * netty (默认, Linux 上 native epoll 可用时使用 epoll, 否则使用 NIO), epoll (强制 epoll, 不可用时退回 NIO 并告警), nio
+ * </p>
+ *
+ * <p>
+ * 使用 epoll 时显式开启边缘触发模式, 服务端开启 TCP_FASTOPEN, 客户端开启 TCP_FASTOPEN_CONNECT;
+ * SO_REUSEPORT 只在服务端有多个监听 socket 时由服务端自行开启;
+ * 内核不支持的选项由 Netty 忽略并打印告警, 不影响启动
+ * </p>
+ *
+ * <p>
+ * 事件循环线程可以选择绑定到 CPU 核, 通过反射使用 OpenHFT Java-Thread-Affinity (net.openhft:affinity),
+ * 该依赖不存在时忽略绑定并打印告警
+ * </p>
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/7/31 10:12
+ */
+@Slf4j
+public final class NettyEventLoopFactory {
+
+    /**
+     * 服务端 TCP Fast Open 队列长度
+     */
+    private static final int TCP_FASTOPEN_QUEUE_LENGTH = 256;
+
+    /**
+     * AffinityLock#acquireLock 与 AffinityLock#release, 依赖不存在时为 null
+     */
+    private static final Method ACQUIRE_LOCK;
+
+    private static final Method RELEASE_LOCK;
+
+    static {
+        Method acquire = null;
+        Method release = null;
+        try {
+            Class<?> lockClass = Class.forName("net.openhft.affinity.AffinityLock");
+            acquire = lockClass.getMethod("acquireLock");
+            release = lockClass.getMethod("release");
+        } catch (ReflectiveOperationException | LinkageError ignored) {
+            // 未引入 affinity 依赖
+        }
+        ACQUIRE_LOCK = acquire;
+        RELEASE_LOCK = release;
+    }
+
+    private NettyEventLoopFactory() {
+
+    }
+
+    /**
+     * 根据配置的传输方式判断是否使用 native epoll
+     *
+     * @param transport 传输方式: netty, epoll, nio, 为空时等同于 netty
+     * @return 是否使用 epoll
+     */
+    public static boolean useEpoll(String transport) {
+        String name = transport == null ? "netty" : transport.trim().toLowerCase(Locale.ROOT);
+        switch (name) {
+            case "netty":
+                return Epoll.isAvailable();
+            case "epoll":
+                if (!Epoll.isAvailable()) {
+                    log.warn("The native epoll transport is unavailable, fall back to nio.", Epoll.unavailabilityCause());
+                    return false;
+                }
+                return true;
+            case "nio":
+                return false;
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported transport [%s], expect netty, epoll or nio.",
+                        transport));
+        }
+    }
+
+    /**
+     * 创建事件循环组
+     *
+     * @param epoll    是否使用 epoll
+     * @param threads  线程数, 0 表示使用 Netty 默认值 (CPU 核数 * 2)
+     * @param poolName 线程名前缀
+     * @return 事件循环组
+     */
+    public static EventLoopGroup eventLoopGroup(boolean epoll, int threads, String poolName) {
+        return eventLoopGroup(epoll, threads, poolName, false);
+    }
+
+    /**
+     * 创建事件循环组
+     *
+     * @param epoll    是否使用 epoll
+     * @param threads  线程数, 0 表示使用 Netty 默认值 (CPU 核数 * 2)
+     * @param poolName 线程名前缀
+     * @param affinity 是否将每个线程绑定到一个独占的 CPU 核
+     * @return 事件循环组
+     */
+    public static EventLoopGroup eventLoopGroup(boolean epoll, int threads, String poolName, boolean affinity) {
+        DefaultThreadFactory threadFactory;
+        if (affinity && ACQUIRE_LOCK != null) {
+            threadFactory = new AffinityThreadFactory(poolName);
+        } else {
+            if (affinity) {
+                log.warn("net.openhft:affinity is not on the classpath, threads of [{}] will not be pinned.", poolName);
+            }
+            threadFactory = new DefaultThreadFactory(poolName);
+        }
+        return epoll ? new EpollEventLoopGroup(threads, threadFactory) : new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    /**
+     * 客户端 Channel 类型
+     */
+    public static Class<? extends SocketChannel> socketChannelClass(boolean epoll) {
+        return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    /**
+     * 服务端 Channel 类型
+     */
+    public static Class<? extends ServerSocketChannel> serverSocketChannelClass(boolean epoll) {
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    /**
+     * 为服务端启动器设置 epoll 特有的选项
+     *
+     * @param bootstrap 服务端启动器
+     * @param epoll     是否使用 epoll
+     */
+    public static void configure(ServerBootstrap bootstrap, boolean epoll) {
+        if (!epoll) {
+            return;
+        }
+        bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                .option(EpollChannelOption.TCP_FASTOPEN, TCP_FASTOPEN_QUEUE_LENGTH)
+                .childOption(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED);
+    }
+
+    /**
+     * 为客户端启动器设置 epoll 特有的选项
+     *
+     * @param bootstrap 客户端启动器
+     * @param epoll     是否使用 epoll
+     */
+    public static void configure(Bootstrap bootstrap, boolean epoll) {
+        if (!epoll) {
+            return;
+        }
+        bootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                .option(EpollChannelOption.TCP_FASTOPEN_CONNECT, true);
+    }
+
+    /**
+     * 线程启动时获取一个 CPU 核的独占锁 (绑定到该核), 线程结束时释放; 可用的核不足时 AffinityLock 不做绑定
+     */
+    private static class AffinityThreadFactory extends DefaultThreadFactory {
+
+        AffinityThreadFactory(String poolName) {
+            super(poolName);
+        }
+
+        @Override
+        protected Thread newThread(Runnable r, String name) {
+            return super.newThread(() -> {
+                Object lock = null;
+                try {
+                    lock = ACQUIRE_LOCK.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    log.warn("Failed to pin thread [{}] to a cpu.", name, e);
+                }
+                try {
+                    r.run();
+                } finally {
+                    if (lock != null) {
+                        try {
+                            RELEASE_LOCK.invoke(lock);
+                        } catch (ReflectiveOperationException ignored) {
+                            // 线程即将结束
+                        }
+                    }
+                }
+            }, name);
+        }
+    }
+}
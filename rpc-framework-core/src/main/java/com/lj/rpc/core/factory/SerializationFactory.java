@@ -1,15 +1,18 @@
 package com.lj.rpc.core.factory;
 
 import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.extension.ExtensionLoader;
 import com.lj.rpc.core.serialization.Serialization;
-import com.lj.rpc.core.serialization.hessian.HessianSerialization;
-import com.lj.rpc.core.serialization.jdk.JdkSerialization;
-import com.lj.rpc.core.serialization.json.JsonSerialization;
-import com.lj.rpc.core.serialization.kryo.KryoSerialization;
-import com.lj.rpc.core.serialization.protostuff.ProtoStuffSerialization;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 /**
- * 序列化算法工厂，通过序列化算法枚举类型获取相应的序列化算法实例
+ * 序列化算法工厂，通过序列化类型编号获取相应的序列化算法实例
+ *
+ * <p>所有序列化算法都通过 {@link ExtensionLoader} 从扩展文件中加载, 每种算法只有一个长期存活的实例,
+ * 并按照协议头中的序列化类型编号 (byte) 直接索引, 编解码时无需再创建对象
  *
  * @author liujue
  * @version 1.0
@@ -17,10 +20,49 @@ import com.lj.rpc.core.serialization.protostuff.ProtoStuffSerialization;
  */
 public final class SerializationFactory {
 
+    /**
+     * 序列化类型编号 -> 序列化算法实例
+     */
+    private static final Serialization[] SERIALIZATIONS = new Serialization[256];
+
+    /**
+     * 扩展名 (小写) -> 序列化类型编号
+     */
+    private static final Map<String, Byte> NAME_TO_TYPE = new HashMap<>();
+
+    static {
+        ExtensionLoader<Serialization> loader = ExtensionLoader.getExtensionLoader(Serialization.class);
+        for (String name : loader.getSupportedExtensions()) {
+            Serialization serialization = loader.getExtension(name);
+            int index = serialization.getType() & 0xFF;
+            Serialization exist = SERIALIZATIONS[index];
+            if (exist != null && exist != serialization) {
+                throw new IllegalStateException(String.format("Serialization type %d is used by both %s and %s.",
+                        index, exist.getClass().getName(), serialization.getClass().getName()));
+            }
+            SERIALIZATIONS[index] = serialization;
+            NAME_TO_TYPE.put(name.toLowerCase(Locale.ROOT), serialization.getType());
+        }
+    }
+
     private SerializationFactory() {
 
     }
 
+    /**
+     * 根据序列化类型编号得到对应的序列化算法
+     *
+     * @param type 协议头中的序列化类型编号
+     * @return 对应的序列化算法实现类
+     */
+    public static Serialization getSerialization(byte type) {
+        Serialization serialization = SERIALIZATIONS[type & 0xFF];
+        if (serialization == null) {
+            throw new IllegalArgumentException(String.format("The serialization type %d is illegal.", type));
+        }
+        return serialization;
+    }
+
     /**
      * 根据序列化类型字段得到对应的序列化算法
      *
@@ -28,20 +70,18 @@ public final class SerializationFactory {
      * @return 对应的序列化算法实现类
      */
     public static Serialization getSerialization(SerializerType serializerType) {
-        switch (serializerType) {
-            case JDK:
-                return new JdkSerialization();
-            case JSON:
-                return new JsonSerialization();
-            case HESSIAN:
-                return new HessianSerialization();
-            case KRYO:
-                return new KryoSerialization();
-            case PROTOSTUFF:
-                return new ProtoStuffSerialization();
-            default:
-                throw new IllegalArgumentException(
-                        String.format("The serialization type %s is illegal.", serializerType.name()));
-        }
+        return getSerialization(serializerType.getType());
+    }
+
+    /**
+     * 根据序列化算法名称 (扩展文件中的 key, 忽略大小写) 得到其类型编号
+     * <p>未找到时与 {@link SerializerType#parseName(String)} 保持一致, 退化为 HESSIAN
+     *
+     * @param serializeName 序列化算法名称
+     * @return 序列化类型编号
+     */
+    public static byte getType(String serializeName) {
+        Byte type = serializeName == null ? null : NAME_TO_TYPE.get(serializeName.toLowerCase(Locale.ROOT));
+        return type != null ? type : SerializerType.parseName(serializeName).getType();
     }
 }
@@ -2,6 +2,10 @@ package com.lj.rpc.core.factory;
 
 import com.lj.rpc.core.config.ThreadPoolConfig;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -11,16 +15,60 @@ import java.util.concurrent.ThreadPoolExecutor;
  * 由此类获取的线程池可以配置
  * </p>
  *
+ * <p>
+ * 运行在 JDK 21 及以上版本时还可以创建每个任务一个虚拟线程的执行器; 相关 API 通过反射调用,
+ * 因此仍然可以按 Java 8 编译
+ * </p>
+ *
  * @author liujue
  * @version 1.0
  * @date 2024/1/27 16:59
  */
 public final class ThreadPoolFactory {
 
+    /**
+     * Thread#ofVirtual, 不支持虚拟线程时为 null
+     */
+    private static final Method OF_VIRTUAL = findOfVirtual();
+
     private ThreadPoolFactory() {
 
     }
 
+    /**
+     * 当前 JVM 是否支持虚拟线程
+     *
+     * @return JDK 21 及以上版本返回 true
+     */
+    public static boolean isVirtualThreadSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器, 虚拟线程在阻塞 (如 IO、Future#get) 时让出载体线程
+     *
+     * @param namePrefix 虚拟线程名前缀, 后接递增编号
+     * @return 执行器
+     * @throws UnsupportedOperationException 当前 JVM 不支持虚拟线程
+     */
+    public static ExecutorService createVirtualThreadExecutor(String namePrefix) {
+        if (OF_VIRTUAL == null) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21 or later.");
+        }
+        try {
+            // Thread.ofVirtual().name(namePrefix, 0).factory()
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            // Executors.newThreadPerTaskExecutor(threadFactory)
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Failed to create the virtual thread executor.", e);
+        }
+    }
+
     /**
      * 创建一个默认配置的线程池
      *
@@ -57,4 +105,17 @@ public final class ThreadPoolFactory {
         );
     }
 
+    /**
+     * 查找 Thread#ofVirtual; JDK 19、20 中该方法为预览 API, 未开启预览特性时调用会抛出异常, 同样视为不支持
+     */
+    private static Method findOfVirtual() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            ofVirtual.invoke(null);
+            return ofVirtual;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
 }
@@ -2,7 +2,7 @@ package com.lj.rpc.core.protocol;
 
 import com.lj.rpc.core.constant.ProtocolConstants;
 import com.lj.rpc.core.enums.MessageType;
-import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.factory.SerializationFactory;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,9 +13,9 @@ import lombok.NoArgsConstructor;
  *
  * <pre>
  * -------------------------------------------------------------------------
- * | 魔数 (4byte) | 版本号 (1byte)  | 序列化方式 (1byte)  | 消息类型 (1byte) |
+ * | 魔数 (4byte) | 版本号 (1byte)  | 序列化方式 (1byte)  | 压缩方式 (1byte) |
  * -------------------------------------------------------------------------
- * |  状态类型 (1byte)  |     消息序列号 (4byte)   |     正文长度 (4byte)    |
+ * | 消息类型 (1byte) | 状态类型 (1byte) | 消息序列号 (4byte) | 正文长度 (4byte) |
  * -------------------------------------------------------------------------
  * |                          消息主体 (不固定)                             |
  * -------------------------------------------------------------------------
@@ -47,6 +47,11 @@ public class MessageHeader {
      */
     private byte serializerType;
 
+    /**
+     * 压缩方式, 1 个字节, 0 表示正文未压缩; 由编解码器根据正文长度决定, 构造消息时无需填写
+     */
+    private byte compressType;
+
     /**
      * 消息类型, 1 个字节
      */
@@ -79,7 +84,7 @@ public class MessageHeader {
                 .magicNum(ProtocolConstants.MAGIC_NUMS)
                 .version(ProtocolConstants.VERSION)
                 // 协议状态在服务端处理时填入
-                .serializerType(SerializerType.parseName(serializeName).getType())
+                .serializerType(SerializationFactory.getType(serializeName))
                 .messageType(MessageType.REQUEST.getType())
                 .sequenceId(ProtocolConstants.getSequenceId())
                 // 正文长度在编码时填入
@@ -1,6 +1,9 @@
 package com.lj.rpc.core.serialization;
 
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
 import com.lj.rpc.core.extension.SPI;
+import io.netty.buffer.ByteBuf;
 
 /**
  * 序列化算法实现接口
@@ -11,6 +14,16 @@ import com.lj.rpc.core.extension.SPI;
 @SPI
 public interface Serialization {
 
+    /**
+     * 获取该序列化算法在协议头中使用的类型编号
+     *
+     * <p>内置算法的编号见 {@link com.lj.rpc.core.enums.SerializerType}, 自定义的序列化算法
+     * 只需在扩展文件中声明并返回一个未被占用的编号即可, 无需修改枚举类
+     *
+     * @return 序列化类型编号
+     */
+    byte getType();
+
     /**
      * 将传入对象进行序列化
      *
@@ -20,6 +33,20 @@ public interface Serialization {
      */
     <T> byte[] serialize(T object);
 
+    /**
+     * 将传入对象直接序列化到 Netty 的 ByteBuf 中
+     *
+     * <p>默认实现先序列化为字节数组再写入, 支持流式写出的序列化算法应当覆盖该方法,
+     * 直接向 (池化的) 出站缓冲区写数据, 省去中间字节数组的分配与拷贝
+     *
+     * @param object 需要被序列化的对象
+     * @param out    出站缓冲区, 序列化结果从其 writerIndex 处开始写入
+     * @param <T>    对象类型
+     */
+    default <T> void serialize(T object, ByteBuf out) {
+        out.writeBytes(serialize(object));
+    }
+
     /**
      * 将对象进行反序列化
      *
@@ -29,4 +56,70 @@ public interface Serialization {
      * @return 返回序列化后的对象
      */
     <T> T deserialize(Class<T> clazz, byte[] bytes);
+
+    /**
+     * 直接从 Netty 的 ByteBuf 中反序列化对象
+     *
+     * <p>默认实现先将可读字节拷贝为字节数组再反序列化, 支持流式读取的序列化算法应当覆盖该方法,
+     * 直接读取入站帧中的正文部分, 不再分配中间字节数组
+     *
+     * @param clazz 对象的类型
+     * @param in    仅包含正文部分的入站缓冲区
+     * @param <T>   对象类型
+     * @return 返回反序列化后的对象
+     */
+    default <T> T deserialize(Class<T> clazz, ByteBuf in) {
+        byte[] bytes = new byte[in.readableBytes()];
+        in.readBytes(bytes);
+        return deserialize(clazz, bytes);
+    }
+
+    /**
+     * 序列化请求信封中的参数值
+     *
+     * <p>方法与参数类型已经由信封本身描述, 这里只需写出参数值; 默认实现借用只填充了参数值的 RpcRequest
+     * 作为载体, 能够直接写出任意对象的序列化算法应当覆盖该方法, 省去载体类型本身的开销
+     *
+     * @param values 参数值
+     * @param types  参数类型, 与对端反序列化时使用的类型一致
+     * @param out    出站缓冲区
+     */
+    default void serializeArguments(Object[] values, Class<?>[] types, ByteBuf out) {
+        RpcRequest holder = new RpcRequest();
+        holder.setParameterValues(values);
+        serialize(holder, out);
+    }
+
+    /**
+     * 反序列化请求信封中的参数值, 与 {@link #serializeArguments(Object[], Class[], ByteBuf)} 对应
+     *
+     * @param types 参数类型
+     * @param in    仅包含参数部分的入站缓冲区
+     * @return 参数值
+     */
+    default Object[] deserializeArguments(Class<?>[] types, ByteBuf in) {
+        return deserialize(RpcRequest.class, in).getParameterValues();
+    }
+
+    /**
+     * 序列化响应信封中的返回值, 默认实现借用只填充了返回值的 RpcResponse 作为载体
+     *
+     * @param value 返回值
+     * @param out   出站缓冲区
+     */
+    default void serializeResult(Object value, ByteBuf out) {
+        RpcResponse holder = new RpcResponse();
+        holder.setReturnValue(value);
+        serialize(holder, out);
+    }
+
+    /**
+     * 反序列化响应信封中的返回值, 与 {@link #serializeResult(Object, ByteBuf)} 对应
+     *
+     * @param in 仅包含返回值部分的入站缓冲区
+     * @return 返回值
+     */
+    default Object deserializeResult(ByteBuf in) {
+        return deserialize(RpcResponse.class, in).getReturnValue();
+    }
 }
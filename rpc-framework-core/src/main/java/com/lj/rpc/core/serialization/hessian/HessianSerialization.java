@@ -1,43 +1,163 @@
 package com.lj.rpc.core.serialization.hessian;
 
-import com.caucho.hessian.io.HessianSerializerInput;
-import com.caucho.hessian.io.HessianSerializerOutput;
+import com.caucho.hessian.io.Hessian2Input;
+import com.caucho.hessian.io.Hessian2Output;
+import com.caucho.hessian.io.SerializerFactory;
+import com.lj.rpc.core.enums.SerializerType;
 import com.lj.rpc.core.exception.SerializationException;
 import com.lj.rpc.core.serialization.Serialization;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * 基于 Hessian 库实现的 Java 序列化算法
  *
+ * <p>
+ * 使用 Hessian 2 协议: 所有实例共享同一个 SerializerFactory (内部缓存了各类型的序列化器),
+ * Hessian2Output/Hessian2Input 及其内部缓冲区按线程复用, 每次调用只需重新绑定目标流;
+ * 读取失败或正文未读完的 Hessian2Input 不再复用
+ * </p>
+ *
  * @author liujue
  * @version 1.0
  * @date 2024/1/28 23:14
  */
 public class HessianSerialization implements Serialization {
 
+    private static final SerializerFactory SERIALIZER_FACTORY = new SerializerFactory();
+
+    private final ThreadLocal<Hessian2Output> outputThreadLocal = ThreadLocal.withInitial(() -> {
+        Hessian2Output output = new Hessian2Output();
+        output.setSerializerFactory(SERIALIZER_FACTORY);
+        return output;
+    });
+
+    private final ThreadLocal<Hessian2Input> inputThreadLocal = ThreadLocal.withInitial(() -> {
+        Hessian2Input input = new Hessian2Input();
+        input.setSerializerFactory(SERIALIZER_FACTORY);
+        return input;
+    });
+
+    @Override
+    public byte getType() {
+        return SerializerType.HESSIAN.getType();
+    }
+
     @Override
     public <T> byte[] serialize(T object) {
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            HessianSerializerOutput hso = new HessianSerializerOutput();
-            hso.writeObject(object);
-            hso.flush();
-            return bos.toByteArray();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        write(object, bos);
+        return bos.toByteArray();
+    }
+
+    @Override
+    public <T> void serialize(T object, ByteBuf out) {
+        // 直接写入出站缓冲区, 不经过中间字节数组
+        write(object, new ByteBufOutputStream(out));
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, byte[] bytes) {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, ByteBuf in) {
+        return read(new ByteBufInputStream(in));
+    }
+
+    @Override
+    public void serializeArguments(Object[] values, Class<?>[] types, ByteBuf out) {
+        // 参数个数由对端的参数类型决定, 逐个写出即可, 无需数组头
+        write(output -> {
+            for (Object value : values) {
+                output.writeObject(value);
+            }
+        }, new ByteBufOutputStream(out));
+    }
+
+    @Override
+    public Object[] deserializeArguments(Class<?>[] types, ByteBuf in) {
+        return read(input -> {
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                values[i] = input.readObject(types[i]);
+            }
+            return values;
+        }, new ByteBufInputStream(in));
+    }
+
+    @Override
+    public void serializeResult(Object value, ByteBuf out) {
+        serialize(value, out);
+    }
+
+    @Override
+    public Object deserializeResult(ByteBuf in) {
+        return deserialize(Object.class, in);
+    }
+
+    private void write(Object object, OutputStream os) {
+        write(output -> output.writeObject(object), os);
+    }
+
+    private void write(HessianWriter writer, OutputStream os) {
+        Hessian2Output output = outputThreadLocal.get();
+        output.init(os);
+        try {
+            writer.write(output);
+            output.flush();
         } catch (Exception e) {
             throw new SerializationException("Hessian serialize failed.", e);
+        } finally {
+            // 清空引用表并解除与目标流的绑定
+            output.init(null);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public <T> T deserialize(Class<T> clazz, byte[] bytes) {
-        try (ByteArrayInputStream bis = new ByteArrayInputStream(bytes)) {
-            HessianSerializerInput hsi = new HessianSerializerInput(bis);
-            return (T) hsi.readObject();
+    private <T> T read(InputStream is) {
+        return read(input -> {
+            @SuppressWarnings("unchecked")
+            T object = (T) input.readObject();
+            return object;
+        }, is);
+    }
+
+    private <T> T read(HessianReader<T> reader, InputStream is) {
+        Hessian2Input input = inputThreadLocal.get();
+        input.init(is);
+        boolean reusable = false;
+        try {
+            T result = reader.read(input);
+            // 正文未读完时剩余字节可能留在预读缓冲区中, init 不会清空该缓冲区
+            reusable = input.isEnd();
+            return result;
         } catch (Exception e) {
             throw new SerializationException("Hessian deserialize failed.", e);
+        } finally {
+            if (reusable) {
+                input.init(null);
+            } else {
+                // 读取失败或有剩余字节时丢弃该实例, 避免残留数据被同一线程上的下一条消息读到
+                inputThreadLocal.remove();
+            }
         }
     }
 
+    @FunctionalInterface
+    private interface HessianWriter {
+        void write(Hessian2Output output) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface HessianReader<T> {
+        T read(Hessian2Input input) throws IOException;
+    }
 }
@@ -1,8 +1,12 @@
 package com.lj.rpc.core.serialization.jdk;
 
 
+import com.lj.rpc.core.enums.SerializerType;
 import com.lj.rpc.core.exception.SerializationException;
 import com.lj.rpc.core.serialization.Serialization;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.*;
 
@@ -15,6 +19,11 @@ import java.io.*;
  */
 public class JdkSerialization implements Serialization {
 
+    @Override
+    public byte getType() {
+        return SerializerType.JDK.getType();
+    }
+
     @Override
     public <T> byte[] serialize(T object) {
         try {
@@ -37,4 +46,59 @@ public class JdkSerialization implements Serialization {
             throw new SerializationException("Jdk deserialize failed.", e);
         }
     }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T deserialize(Class<T> clazz, ByteBuf in) {
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new ByteBufInputStream(in));
+            return (T) ois.readObject();
+        } catch (Exception e) {
+            throw new SerializationException("Jdk deserialize failed.", e);
+        }
+    }
+
+    @Override
+    public <T> void serialize(T object, ByteBuf out) {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new ByteBufOutputStream(out))) {
+            oos.writeObject(object);
+        } catch (IOException e) {
+            throw new SerializationException("Jdk serialize failed.", e);
+        }
+    }
+
+    @Override
+    public void serializeArguments(Object[] values, Class<?>[] types, ByteBuf out) {
+        try (ObjectOutputStream oos = new ObjectOutputStream(new ByteBufOutputStream(out))) {
+            for (Object value : values) {
+                oos.writeObject(value);
+            }
+        } catch (IOException e) {
+            throw new SerializationException("Jdk serialize failed.", e);
+        }
+    }
+
+    @Override
+    public Object[] deserializeArguments(Class<?>[] types, ByteBuf in) {
+        try {
+            ObjectInputStream ois = new ObjectInputStream(new ByteBufInputStream(in));
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                values[i] = ois.readObject();
+            }
+            return values;
+        } catch (Exception e) {
+            throw new SerializationException("Jdk deserialize failed.", e);
+        }
+    }
+
+    @Override
+    public void serializeResult(Object value, ByteBuf out) {
+        serialize(value, out);
+    }
+
+    @Override
+    public Object deserializeResult(ByteBuf in) {
+        return deserialize(Object.class, in);
+    }
 }
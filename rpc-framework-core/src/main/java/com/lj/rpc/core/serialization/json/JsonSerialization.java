@@ -1,22 +1,43 @@
 package com.lj.rpc.core.serialization.json;
 
-import com.google.gson.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.exception.RpcException;
 import com.lj.rpc.core.exception.SerializationException;
 import com.lj.rpc.core.serialization.Serialization;
-import lombok.SneakyThrows;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
 
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * 基于 GSON 库实现的 JSON 序列化算法
+ * 基于 Jackson 库实现的 JSON 序列化算法
  *
  * <p>
- *     解决了无法正确序列化 Class 类型的问题: java.lang.UnsupportedOperationException
+ *     所有调用共享同一个预先构建好的 ObjectMapper (线程安全), 并直接在 ByteBuf 上流式读写
  * </p>
  *
  * <p>
- *     解决方式: 手动实现一个针对 Class 的类型转换器
+ *     JSON 本身不携带类型信息, 因此为 RpcRequest/RpcResponse 注册了专门的序列化器:
+ *     请求参数按照 parameterTypes 声明的类型还原, 响应值则额外写出 returnType;
+ *     泛型参数 (如 {@code List<User>}) 只能还原到擦除后的类型
  * </p>
  *
  * @author liujue
@@ -25,46 +46,241 @@ import java.nio.charset.StandardCharsets;
  */
 public class JsonSerialization implements Serialization {
 
+    private static final ObjectMapper MAPPER = createMapper();
+
+    @Override
+    public byte getType() {
+        return SerializerType.JSON.getType();
+    }
+
     @Override
     public <T> byte[] serialize(T object) {
         try {
-            Gson gson = new GsonBuilder().registerTypeAdapter(Class.class, new ClassCodec()).create();
-            String json = gson.toJson(object);
-            return json.getBytes(StandardCharsets.UTF_8);
+            return MAPPER.writeValueAsBytes(object);
         } catch (Exception e) {
             throw new SerializationException("Json serialize failed.", e);
         }
+    }
 
+    @Override
+    public <T> void serialize(T object, ByteBuf out) {
+        try {
+            MAPPER.writeValue((OutputStream) new ByteBufOutputStream(out), object);
+        } catch (Exception e) {
+            throw new SerializationException("Json serialize failed.", e);
+        }
     }
 
     @Override
     public <T> T deserialize(Class<T> clazz, byte[] bytes) {
         try {
-            Gson gson = new GsonBuilder().registerTypeAdapter(Class.class, new ClassCodec()).create();
-            String json = new String(bytes, StandardCharsets.UTF_8);
-            return gson.fromJson(json, clazz);
+            return MAPPER.readValue(bytes, clazz);
+        } catch (Exception e) {
+            throw new SerializationException("Json deserialize failed.", e);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, ByteBuf in) {
+        try {
+            return MAPPER.readValue((InputStream) new ByteBufInputStream(in), clazz);
+        } catch (Exception e) {
+            throw new SerializationException("Json deserialize failed.", e);
+        }
+    }
+
+    @Override
+    public void serializeArguments(Object[] values, Class<?>[] types, ByteBuf out) {
+        // 参数写为 JSON 数组, 类型由对端已知的参数类型决定
+        try {
+            MAPPER.writeValue((OutputStream) new ByteBufOutputStream(out), values);
+        } catch (Exception e) {
+            throw new SerializationException("Json serialize failed.", e);
+        }
+    }
+
+    @Override
+    public Object[] deserializeArguments(Class<?>[] types, ByteBuf in) {
+        try (JsonParser p = MAPPER.createParser((InputStream) new ByteBufInputStream(in))) {
+            if (p.nextToken() != JsonToken.START_ARRAY) {
+                throw new SerializationException("Json arguments must be an array.");
+            }
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                JsonToken token = p.nextToken();
+                if (token == JsonToken.END_ARRAY) {
+                    throw new SerializationException(String.format("Expect %d arguments, got %d.", types.length, i));
+                }
+                values[i] = token == JsonToken.VALUE_NULL ? null : MAPPER.readValue(p, types[i]);
+            }
+            return values;
+        } catch (SerializationException e) {
+            throw e;
         } catch (Exception e) {
             throw new SerializationException("Json deserialize failed.", e);
         }
     }
 
     /**
-     * 自定义一个类型转换器用于序列化 Class 类型
+     * 自定义反序列化器被调用时, 解析器可能停在 START_OBJECT 或第一个 FIELD_NAME 上
+     */
+    private static String firstFieldName(JsonParser p) throws IOException {
+        if (p.currentToken() == JsonToken.START_OBJECT) {
+            return p.nextFieldName();
+        }
+        return p.currentToken() == JsonToken.FIELD_NAME ? p.getCurrentName() : null;
+    }
+
+    private static ObjectMapper createMapper() {
+        SimpleModule module = new SimpleModule("rpc");
+        module.addSerializer(RpcRequest.class, new RequestSerializer());
+        module.addDeserializer(RpcRequest.class, new RequestDeserializer());
+        module.addSerializer(RpcResponse.class, new ResponseSerializer());
+        module.addDeserializer(RpcResponse.class, new ResponseDeserializer());
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        mapper.registerModule(module);
+        return mapper;
+    }
+
+    /**
+     * 请求序列化器, 保证 parameterTypes 先于 parameterValues 写出
      */
-    static class ClassCodec implements JsonSerializer<Class<?>>, JsonDeserializer<Class<?>> {
-        @SneakyThrows
+    static class RequestSerializer extends JsonSerializer<RpcRequest> {
         @Override
-        public Class<?> deserialize(JsonElement jsonElement, Type type,
-                                    JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
-            // json -> class
-            String str = jsonElement.getAsString();
-            return Class.forName(str);
+        public void serialize(RpcRequest request, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("serviceName", request.getServiceName());
+            gen.writeStringField("method", request.getMethod());
+            Class<?>[] types = request.getParameterTypes();
+            if (types != null) {
+                gen.writeArrayFieldStart("parameterTypes");
+                for (Class<?> type : types) {
+                    gen.writeString(type.getName());
+                }
+                gen.writeEndArray();
+            }
+            Object[] values = request.getParameterValues();
+            if (values != null) {
+                gen.writeArrayFieldStart("parameterValues");
+                for (Object value : values) {
+                    provider.defaultSerializeValue(value, gen);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
         }
+    }
 
+    /**
+     * 请求反序列化器, 按照 parameterTypes 声明的类型还原每个参数
+     */
+    static class RequestDeserializer extends JsonDeserializer<RpcRequest> {
+        @Override
+        public RpcRequest deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            RpcRequest request = new RpcRequest();
+            JsonNode pendingValues = null;
+            for (String field = firstFieldName(p); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "serviceName":
+                        request.setServiceName(p.getValueAsString());
+                        break;
+                    case "method":
+                        request.setMethod(p.getValueAsString());
+                        break;
+                    case "parameterTypes":
+                        request.setParameterTypes(ctxt.readValue(p, Class[].class));
+                        break;
+                    case "parameterValues":
+                        if (request.getParameterTypes() != null) {
+                            request.setParameterValues(readValues(p, ctxt, request.getParameterTypes()));
+                        } else {
+                            // 字段顺序被打乱时先缓存, 读到类型后再转换
+                            pendingValues = ctxt.readTree(p);
+                        }
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+            if (pendingValues != null) {
+                Class<?>[] types = request.getParameterTypes();
+                Object[] values = new Object[pendingValues.size()];
+                for (int i = 0; i < values.length; i++) {
+                    Class<?> type = types != null && i < types.length ? types[i] : Object.class;
+                    values[i] = MAPPER.treeToValue(pendingValues.get(i), type);
+                }
+                request.setParameterValues(values);
+            }
+            return request;
+        }
+
+        private Object[] readValues(JsonParser p, DeserializationContext ctxt, Class<?>[] types) throws IOException {
+            List<Object> values = new ArrayList<>(types.length);
+            int i = 0;
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                Class<?> type = i < types.length ? types[i] : Object.class;
+                values.add(p.currentToken() == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, type));
+                i++;
+            }
+            return values.toArray();
+        }
+    }
+
+    /**
+     * 响应序列化器, 额外写出返回值的实际类型; 异常只写出异常信息, 服务端写回的异常本身即为只携带信息的 RpcException
+     */
+    static class ResponseSerializer extends JsonSerializer<RpcResponse> {
+        @Override
+        public void serialize(RpcResponse response, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            Object value = response.getReturnValue();
+            if (value != null) {
+                gen.writeStringField("returnType", value.getClass().getName());
+                gen.writeFieldName("returnValue");
+                provider.defaultSerializeValue(value, gen);
+            }
+            Exception exception = response.getExceptionValue();
+            if (exception != null) {
+                gen.writeStringField("exceptionMessage", exception.getMessage());
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    /**
+     * 响应反序列化器, 按照 returnType 还原返回值, 异常信息统一还原为 RpcException, 不按对端提供的类名加载异常类
+     */
+    static class ResponseDeserializer extends JsonDeserializer<RpcResponse> {
         @Override
-        public JsonElement serialize(Class<?> aClass, Type type, JsonSerializationContext jsonSerializationContext) {
-            // class -> json
-            return new JsonPrimitive(aClass.getName());
+        public RpcResponse deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            RpcResponse response = new RpcResponse();
+            Class<?> returnType = Object.class;
+            boolean failed = false;
+            String exceptionMessage = null;
+            for (String field = firstFieldName(p); field != null; field = p.nextFieldName()) {
+                p.nextToken();
+                switch (field) {
+                    case "returnType":
+                        returnType = ctxt.readValue(p, Class.class);
+                        break;
+                    case "returnValue":
+                        response.setReturnValue(ctxt.readValue(p, returnType));
+                        break;
+                    case "exceptionMessage":
+                        failed = true;
+                        exceptionMessage = p.getValueAsString();
+                        break;
+                    default:
+                        p.skipChildren();
+                }
+            }
+            if (failed) {
+                response.setExceptionValue(new RpcException(exceptionMessage));
+            }
+            return response;
         }
     }
 }
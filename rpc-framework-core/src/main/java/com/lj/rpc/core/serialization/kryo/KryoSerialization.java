@@ -3,13 +3,26 @@ package com.lj.rpc.core.serialization.kryo;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
 import com.lj.rpc.core.entity.RpcRequest;
 import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.enums.SerializerType;
 import com.lj.rpc.core.exception.SerializationException;
 import com.lj.rpc.core.serialization.Serialization;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import org.objenesis.strategy.StdInstantiatorStrategy;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 /**
  * 基于 Kryo 库实现 Java 序列化算法
@@ -18,6 +31,15 @@ import java.io.ByteArrayOutputStream;
  * 注意: 除 Java 外，Scala 和 Kotlin 这些基于 JVM 的语言同样可以使用 Kryo 实现序列化
  * </p>
  *
+ * <p>
+ * Kryo 不是线程安全的, 这里使用有界的 Kryo 对象池: 借出时复用已完成类注册的实例, 池满时归还的实例直接丢弃;
+ * Output/Input 缓冲区则按线程复用, 避免每次调用都重新分配
+ * </p>
+ *
+ * <p>
+ * 类注册顺序决定了类在序列化结果中的编号, 因此服务端与客户端必须配置相同的注册列表 (顺序也要一致)
+ * </p>
+ *
  * @author liujue
  * @version 1.0
  * @date 2024/1/28 23:21
@@ -25,41 +47,227 @@ import java.io.ByteArrayOutputStream;
 public class KryoSerialization implements Serialization {
 
     /**
-     * 因为 Kryo 不是线程安全的, 因此这里使用 ThreadLocal 来保存 Kryo 对象；
-     * 也可以通过构造 Kryo 对象池的方式解决线程安全问题
+     * 对象池容量
+     */
+    private static final int POOL_CAPACITY = Runtime.getRuntime().availableProcessors() * 4;
+
+    /**
+     * 线程复用的输出缓冲区初始大小, 写满时会刷出到目标流中
+     */
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * 默认注册的框架内部类型, 注册顺序不可随意调整
+     */
+    private static final List<Class<?>> DEFAULT_REGISTRATIONS = Collections.unmodifiableList(Arrays.asList(
+            RpcRequest.class, RpcResponse.class, Class.class, Class[].class, Object[].class,
+            ArrayList.class, HashMap.class));
+
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    private final ThreadLocal<Output> outputThreadLocal = ThreadLocal.withInitial(() -> new Output(BUFFER_SIZE, -1));
+
+    private final ThreadLocal<Input> inputThreadLocal = ThreadLocal.withInitial(Input::new);
+
+    private final ThreadLocal<Input> streamInputThreadLocal = ThreadLocal.withInitial(() -> new Input(BUFFER_SIZE));
+
+    /**
+     * 用户配置的额外注册类型
+     */
+    private volatile List<Class<?>> registrations = Collections.emptyList();
+
+    /**
+     * 是否开启严格模式, 开启后未注册的类型将无法序列化
+     */
+    private volatile boolean registrationRequired;
+
+    private volatile KryoPool pool = buildPool();
+
+    /**
+     * 是否已经配置过, 只在 configure 中读写
+     */
+    private boolean configured;
+
+    /**
+     * 配置额外的注册类型以及严格模式, 已经池化的 Kryo 实例会被整体替换
+     *
+     * <p>同一进程中的客户端与服务端共享同一个实例, 类型编号又必须与对端一致,
+     * 因此再次配置时注册列表或严格模式与之前不同会直接失败, 而不是静默覆盖另一端的配置
+     *
+     * @param registrations        需要注册的类型, 按顺序分配编号
+     * @param registrationRequired 是否开启严格模式
+     * @throws IllegalStateException 已经以不同的配置配置过
      */
-    private final ThreadLocal<Kryo> kryoThreadLocal = ThreadLocal.withInitial(() -> {
-        Kryo kryo = new Kryo();
-        kryo.register(RpcResponse.class);
-        kryo.register(RpcRequest.class);
-        return kryo;
-    });
+    public synchronized void configure(List<Class<?>> registrations, boolean registrationRequired) {
+        List<Class<?>> classes = registrations == null
+                ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(registrations));
+        if (configured) {
+            if (!this.registrations.equals(classes) || this.registrationRequired != registrationRequired) {
+                throw new IllegalStateException(String.format("Kryo is already configured with registrations %s "
+                                + "(registrationRequired=%s), but got %s (registrationRequired=%s). The client and "
+                                + "server in the same process must use the same Kryo configuration.",
+                        this.registrations, this.registrationRequired, classes, registrationRequired));
+            }
+            return;
+        }
+        this.registrations = classes;
+        this.registrationRequired = registrationRequired;
+        this.pool = buildPool();
+        this.configured = true;
+    }
+
+    @Override
+    public byte getType() {
+        return SerializerType.KRYO.getType();
+    }
 
     @Override
     public <T> byte[] serialize(T object) {
-        try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-             Output output = new Output(byteArrayOutputStream)) {
-            Kryo kryo = kryoThreadLocal.get();
+        Output output = outputThreadLocal.get();
+        KryoPool pool = this.pool;
+        Kryo kryo = pool.borrow();
+        try {
+            output.clear();
             // object -> byte[]
             kryo.writeObject(output, object);
-            kryoThreadLocal.remove();
             return output.toBytes();
         } catch (Exception e) {
             throw new SerializationException("Kryo serialize failed.", e);
+        } finally {
+            pool.release(kryo);
         }
     }
 
+    @Override
+    public <T> void serialize(T object, ByteBuf out) {
+        write(out, (kryo, output) -> kryo.writeObject(output, object));
+    }
+
     @Override
     public <T> T deserialize(Class<T> clazz, byte[] bytes) {
-        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
-             Input input = new Input(byteArrayInputStream)) {
-            Kryo kryo = kryoThreadLocal.get();
+        Input input = inputThreadLocal.get();
+        KryoPool pool = this.pool;
+        Kryo kryo = pool.borrow();
+        try {
+            input.setBuffer(bytes);
             // byte[] -> object
-            T object = kryo.readObject(input, clazz);
-            kryoThreadLocal.remove();
-            return object;
+            return kryo.readObject(input, clazz);
+        } catch (Exception e) {
+            throw new SerializationException("Kryo deserialize failed.", e);
+        } finally {
+            input.setBuffer(EMPTY_BYTES);
+            pool.release(kryo);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, ByteBuf in) {
+        return read(in, (kryo, input) -> kryo.readObject(input, clazz));
+    }
+
+    @Override
+    public void serializeArguments(Object[] values, Class<?>[] types, ByteBuf out) {
+        write(out, (kryo, output) -> {
+            for (int i = 0; i < values.length; i++) {
+                // 声明类型为 final 时对端可以直接确定实际类型, 无需写出类型编号
+                if (Modifier.isFinal(types[i].getModifiers())) {
+                    kryo.writeObjectOrNull(output, values[i], types[i]);
+                } else {
+                    kryo.writeClassAndObject(output, values[i]);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Object[] deserializeArguments(Class<?>[] types, ByteBuf in) {
+        return read(in, (kryo, input) -> {
+            Object[] values = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                values[i] = Modifier.isFinal(types[i].getModifiers())
+                        ? kryo.readObjectOrNull(input, types[i]) : kryo.readClassAndObject(input);
+            }
+            return values;
+        });
+    }
+
+    @Override
+    public void serializeResult(Object value, ByteBuf out) {
+        write(out, (kryo, output) -> kryo.writeClassAndObject(output, value));
+    }
+
+    @Override
+    public Object deserializeResult(ByteBuf in) {
+        return read(in, Kryo::readClassAndObject);
+    }
+
+    private void write(ByteBuf out, BiConsumer<Kryo, Output> writer) {
+        // Output 满时直接 flush 到出站缓冲区中
+        Output output = outputThreadLocal.get();
+        KryoPool pool = this.pool;
+        Kryo kryo = pool.borrow();
+        try {
+            output.setOutputStream(new ByteBufOutputStream(out));
+            writer.accept(kryo, output);
+            output.flush();
+        } catch (Exception e) {
+            throw new SerializationException("Kryo serialize failed.", e);
+        } finally {
+            output.setOutputStream(null);
+            pool.release(kryo);
+        }
+    }
+
+    private <R> R read(ByteBuf in, BiFunction<Kryo, Input, R> reader) {
+        if (!in.hasArray()) {
+            return readStream(in, reader);
+        }
+        // 堆内存直接包装其底层数组, 无需拷贝
+        Input input = inputThreadLocal.get();
+        KryoPool pool = this.pool;
+        Kryo kryo = pool.borrow();
+        try {
+            input.setBuffer(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+            return reader.apply(kryo, input);
         } catch (Exception e) {
             throw new SerializationException("Kryo deserialize failed.", e);
+        } finally {
+            // 不再持有入站缓冲区的引用
+            input.setBuffer(EMPTY_BYTES);
+            pool.release(kryo);
         }
     }
+
+    /**
+     * 堆外内存以及由多个分块重组的正文以流的方式读取: 每次从 ByteBuf 批量拷贝一段到线程复用的缓冲区中,
+     * 比 ByteBufferInput 在堆外内存上逐字节读取快得多, 也不会拷贝为一个完整的数组
+     */
+    private <R> R readStream(ByteBuf in, BiFunction<Kryo, Input, R> reader) {
+        Input input = streamInputThreadLocal.get();
+        KryoPool pool = this.pool;
+        Kryo kryo = pool.borrow();
+        try {
+            input.setInputStream(new ByteBufInputStream(in));
+            return reader.apply(kryo, input);
+        } catch (Exception e) {
+            throw new SerializationException("Kryo deserialize failed.", e);
+        } finally {
+            input.setInputStream(null);
+            pool.release(kryo);
+        }
+    }
+
+    private KryoPool buildPool() {
+        final List<Class<?>> classes = registrations;
+        final boolean required = registrationRequired;
+        return new KryoPool.Builder(() -> {
+            Kryo kryo = new Kryo();
+            kryo.setRegistrationRequired(required);
+            // 优先使用无参构造器, 没有时退化为 objenesis 直接实例化
+            kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+            DEFAULT_REGISTRATIONS.forEach(kryo::register);
+            classes.forEach(kryo::register);
+            return kryo;
+        }).queue(new ArrayBlockingQueue<>(POOL_CAPACITY)).build();
+    }
 }
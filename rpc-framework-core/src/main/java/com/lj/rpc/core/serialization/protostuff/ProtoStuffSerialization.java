@@ -1,7 +1,12 @@
 package com.lj.rpc.core.serialization.protostuff;
 
+import com.lj.rpc.core.enums.SerializerType;
 import com.lj.rpc.core.exception.SerializationException;
 import com.lj.rpc.core.serialization.Serialization;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.protostuff.ByteBufferInput;
 import io.protostuff.LinkedBuffer;
 import io.protostuff.ProtostuffIOUtil;
 import io.protostuff.Schema;
@@ -24,19 +29,26 @@ public class ProtoStuffSerialization implements Serialization {
 
     /**
      * 提前分配好 Buffer，避免每次序列化都需要重新申请 Buffer 空间
+     * <p>实例在所有连接间共享, LinkedBuffer 不是线程安全的, 因此每个线程持有一个
      */
-    private final LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+    private final ThreadLocal<LinkedBuffer> bufferThreadLocal =
+            ThreadLocal.withInitial(() -> LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE));
 
     /**
      * 缓存 Schema 实例，避免每次序列化都通过反射获取 Schema，提高性能
      */
     private static final ConcurrentHashMap<Class<?>, Schema<?>> schemaCache = new ConcurrentHashMap<>();
 
+    @Override
+    public byte getType() {
+        return SerializerType.PROTOSTUFF.getType();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> byte[] serialize(T object) {
-        Class<T> clazz = (Class<T>) object.getClass();
-        Schema<T> schema = (Schema<T>) schemaCache.computeIfAbsent(clazz, RuntimeSchema::getSchema);
+        Schema<T> schema = getSchema((Class<T>) object.getClass());
+        LinkedBuffer buffer = bufferThreadLocal.get();
         try {
             return ProtostuffIOUtil.toByteArray(object, schema, buffer);
         } catch (Exception e) {
@@ -46,10 +58,25 @@ public class ProtoStuffSerialization implements Serialization {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> void serialize(T object, ByteBuf out) {
+        Schema<T> schema = getSchema((Class<T>) object.getClass());
+        LinkedBuffer buffer = bufferThreadLocal.get();
+        try {
+            // LinkedBuffer 写满时直接刷到出站缓冲区中
+            ProtostuffIOUtil.writeTo(new ByteBufOutputStream(out), object, schema, buffer);
+        } catch (Exception e) {
+            throw new SerializationException("Protostuff serialize failed.", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
     @Override
     public <T> T deserialize(Class<T> clazz, byte[] bytes) {
         try {
-            Schema<T> schema = RuntimeSchema.getSchema(clazz);
+            Schema<T> schema = getSchema(clazz);
             T object = schema.newMessage();
             ProtostuffIOUtil.mergeFrom(bytes, object, schema);
             return object;
@@ -57,4 +84,36 @@ public class ProtoStuffSerialization implements Serialization {
             throw new SerializationException("Protostuff deserialize failed.", e);
         }
     }
+
+    @Override
+    public <T> T deserialize(Class<T> clazz, ByteBuf in) {
+        try {
+            Schema<T> schema = getSchema(clazz);
+            T object = schema.newMessage();
+            if (in.nioBufferCount() != 1) {
+                // 由多个分块重组的正文不连续, 以流的方式读取, 避免拷贝为一个完整的 ByteBuffer
+                ProtostuffIOUtil.mergeFrom(new ByteBufInputStream(in), object, schema);
+                return object;
+            }
+            // 与 ProtostuffIOUtil 一致, 嵌套消息按 group 方式解码
+            ByteBufferInput input = new ByteBufferInput(in.nioBuffer(), true);
+            schema.mergeFrom(input, object);
+            input.checkLastTagWas(0);
+            return object;
+        } catch (Exception e) {
+            throw new SerializationException("Protostuff deserialize failed.", e);
+        }
+    }
+
+    /**
+     * 从缓存中获取 Schema, 序列化与反序列化共用
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Schema<T> getSchema(Class<T> clazz) {
+        Schema<T> schema = (Schema<T>) schemaCache.get(clazz);
+        if (schema == null) {
+            schema = (Schema<T>) schemaCache.computeIfAbsent(clazz, RuntimeSchema::getSchema);
+        }
+        return schema;
+    }
 }
@@ -3,6 +3,9 @@ package com.lj.rpc.core.util;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 import com.lj.rpc.core.entity.ServiceMessage;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 服务注册与发现相关的工具类
  *
@@ -12,6 +15,19 @@ import com.lj.rpc.core.entity.ServiceMessage;
  */
 public class ServiceUtils {
 
+    /**
+     * 基本类型名称 -> 基本类型
+     */
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+
+    static {
+        Class<?>[] primitives = {boolean.class, byte.class, char.class, short.class,
+                int.class, long.class, float.class, double.class, void.class};
+        for (Class<?> primitive : primitives) {
+            PRIMITIVES.put(primitive.getName(), primitive);
+        }
+    }
+
     private ServiceUtils() {
 
     }
@@ -53,4 +69,23 @@ public class ServiceUtils {
         serviceMessage.setPort(instance.getPort());
         return serviceMessage;
     }
+
+    /**
+     * 根据 {@link Class#getName()} 的结果加载类, 支持基本类型
+     *
+     * @param className 类名
+     * @return 对应的类型
+     * @throws ClassNotFoundException 类不存在时抛出
+     */
+    public static Class<?> forName(String className) throws ClassNotFoundException {
+        Class<?> primitive = PRIMITIVES.get(className);
+        if (primitive != null) {
+            return primitive;
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = ServiceUtils.class.getClassLoader();
+        }
+        return Class.forName(className, false, classLoader);
+    }
 }
@@ -0,0 +1,315 @@
+package com.lj.rpc.codec;
+
+import com.lj.rpc.core.codec.InvocationTable;
+import com.lj.rpc.core.codec.RpcFrameDecoder;
+import com.lj.rpc.core.codec.SharableRpcMessageCodec;
+import com.lj.rpc.core.constant.ProtocolConstants;
+import com.lj.rpc.core.entity.MethodDescriptor;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.enums.CompressType;
+import com.lj.rpc.core.enums.MessageType;
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.exception.RpcException;
+import com.lj.rpc.core.protocol.MessageHeader;
+import com.lj.rpc.core.protocol.RpcMessage;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.TooLongFrameException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 编解码器测试类
+ *
+ * @author liujue
+ */
+public class CodecTest {
+
+    @Test
+    public void testRoundTrip() {
+        for (SerializerType type : SerializerType.values()) {
+            EmbeddedChannel client = new EmbeddedChannel(new RpcFrameDecoder(), new SharableRpcMessageCodec());
+            EmbeddedChannel server = new EmbeddedChannel(new RpcFrameDecoder(), new SharableRpcMessageCodec());
+
+            // 第一次调用携带方法定义, 第二次只携带方法编号
+            int first = roundTrip(client, server, request("liujue"), type);
+            int second = roundTrip(client, server, request("liujue"), type);
+            Assert.assertTrue(type.name(), second < first);
+
+            RpcResponse response = new RpcResponse();
+            response.setReturnValue("hello liujue");
+            RpcMessage decoded = transfer(server, client, message(type, MessageType.RESPONSE, response));
+            Assert.assertEquals(type.name(), "hello liujue", ((RpcResponse) decoded.getBody()).getReturnValue());
+
+            response = new RpcResponse();
+            response.setExceptionValue(new RpcException("boom"));
+            decoded = transfer(server, client, message(type, MessageType.RESPONSE, response));
+            Assert.assertEquals(type.name(), "boom", ((RpcResponse) decoded.getBody()).getExceptionValue().getMessage());
+
+            Assert.assertFalse(client.finish());
+            Assert.assertFalse(server.finish());
+        }
+    }
+
+    @Test
+    public void testHandshake() {
+        EmbeddedChannel client = new EmbeddedChannel(new RpcFrameDecoder(), new SharableRpcMessageCodec());
+        EmbeddedChannel server = new EmbeddedChannel(new RpcFrameDecoder(), new SharableRpcMessageCodec());
+        SerializerType type = SerializerType.HESSIAN;
+
+        RpcMessage handshake = transfer(client, server, message(type, MessageType.HANDSHAKE_REQUEST, null));
+        Assert.assertEquals(MessageType.HANDSHAKE_REQUEST.getType(), handshake.getMessageHeader().getMessageType());
+        MethodDescriptor[] exported = {
+                new MethodDescriptor("com.lj.rpc.api.service.HelloService-1.0", "sayHello",
+                        new Class<?>[]{String.class, int.class}),
+                // 客户端无法加载的类型会被跳过
+                new MethodDescriptor("com.lj.rpc.api.service.HelloService-1.0", "sayHello",
+                        new Class<?>[]{Unloadable.class})
+        };
+        InvocationTable.get(server).setExported(exported);
+        RpcMessage reply = message(type, MessageType.HANDSHAKE_RESPONSE, exported);
+        Assert.assertTrue(server.writeOutbound(reply));
+        ByteBuf frame = server.readOutbound();
+        // 模拟客户端缺少该类型: 将类型名改写为不存在的类
+        String name = Unloadable.class.getName();
+        int index = frame.toString(StandardCharsets.ISO_8859_1).indexOf(name);
+        frame.setCharSequence(index, name.replace("Unloadable", "Missing000"), StandardCharsets.ISO_8859_1);
+        Assert.assertTrue(client.writeInbound(frame));
+        MethodDescriptor[] remote = (MethodDescriptor[]) ((RpcMessage) client.readInbound()).getBody();
+        Assert.assertEquals(exported[0], remote[0]);
+        Assert.assertNull(remote[1]);
+        InvocationTable.get(client).setRemote(remote);
+
+        // 握手之后只发送全局编号
+        Assert.assertTrue(client.writeOutbound(message(type, MessageType.REQUEST, request("liujue"))));
+        Assert.assertTrue(server.writeInbound((ByteBuf) client.readOutbound()));
+        RpcRequest body = (RpcRequest) ((RpcMessage) server.readInbound()).getBody();
+        Assert.assertEquals(0, body.getMethodId());
+        Assert.assertEquals("sayHello", body.getMethod());
+        Assert.assertArrayEquals(new Object[]{"liujue", 24}, body.getParameterValues());
+        Assert.assertFalse(client.finish());
+        Assert.assertFalse(server.finish());
+    }
+
+    @Test
+    public void testUnresolvableDefinition() {
+        EmbeddedChannel client = new EmbeddedChannel(new RpcFrameDecoder(), new SharableRpcMessageCodec());
+        EmbeddedChannel server = new EmbeddedChannel(new RpcFrameDecoder(), new SharableRpcMessageCodec());
+        SerializerType type = SerializerType.HESSIAN;
+        RpcRequest unresolvable = request(null);
+        unresolvable.setParameterTypes(new Class<?>[]{Unloadable.class});
+        unresolvable.setParameterValues(new Object[]{null});
+
+        // 模拟服务端缺少该类型: 将类型名改写为不存在的类
+        Assert.assertTrue(client.writeOutbound(message(type, MessageType.REQUEST, unresolvable)));
+        ByteBuf frame = client.readOutbound();
+        String name = Unloadable.class.getName();
+        int index = frame.toString(StandardCharsets.ISO_8859_1).indexOf(name);
+        frame.setCharSequence(index, name.replace("Unloadable", "Missing000"), StandardCharsets.ISO_8859_1);
+        Assert.assertTrue(server.writeInbound(frame));
+        RpcRequest body = (RpcRequest) ((RpcMessage) server.readInbound()).getBody();
+        Assert.assertNotNull(body.getDecodeError());
+        Assert.assertEquals("sayHello", body.getMethod());
+
+        // 无法解析的定义仍占用编号, 之后新定义的方法不受影响
+        RpcRequest other = request("liujue");
+        other.setMethod("sayHi");
+        roundTrip(client, server, other, type);
+
+        // 再次引用无法解析的编号时同样得到解码失败的请求
+        body = (RpcRequest) transfer(client, server, message(type, MessageType.REQUEST, unresolvable)).getBody();
+        Assert.assertNotNull(body.getDecodeError());
+        Assert.assertFalse(client.finish());
+        Assert.assertFalse(server.finish());
+    }
+
+    @Test
+    public void testChunkedMessage() {
+        char[] chars = new char[100 * 1024];
+        Arrays.fill(chars, 'x');
+        String large = new String(chars);
+        for (SerializerType type : SerializerType.values()) {
+            // 单帧上限 2 KB, 超过 1 KB 的正文拆分为分块帧
+            EmbeddedChannel client = new EmbeddedChannel(new RpcFrameDecoder(2048),
+                    new SharableRpcMessageCodec(1024, 1 << 20));
+            EmbeddedChannel server = new EmbeddedChannel(new RpcFrameDecoder(2048),
+                    new SharableRpcMessageCodec(1024, 1 << 20));
+
+            Assert.assertTrue(client.writeOutbound(message(type, MessageType.REQUEST, request(large))));
+            int frames = 0;
+            ByteBuf frame;
+            while ((frame = client.readOutbound()) != null) {
+                Assert.assertTrue(type.name(), frame.readableBytes() <= 2048);
+                // 大消息编码到 CompositeByteBuf 中, 分块帧引用其切片, 发送方不持有一块与消息等长的连续内存
+                Assert.assertTrue(type.name(),
+                        ((CompositeByteBuf) frame).internalComponent(1).unwrap() instanceof CompositeByteBuf);
+                frames++;
+                // 最后一块到达之前不产生消息
+                boolean produced = server.writeInbound(frame);
+                Assert.assertEquals(type.name(), client.outboundMessages().isEmpty(), produced);
+            }
+            Assert.assertTrue(type.name(), frames > 50);
+            RpcMessage decoded = server.readInbound();
+            Assert.assertEquals(MessageType.REQUEST.getType(), decoded.getMessageHeader().getMessageType());
+            Assert.assertArrayEquals(type.name(), new Object[]{large, 24},
+                    ((RpcRequest) decoded.getBody()).getParameterValues());
+
+            RpcResponse response = new RpcResponse();
+            response.setReturnValue(large);
+            Assert.assertTrue(server.writeOutbound(message(type, MessageType.RESPONSE, response)));
+            while ((frame = server.readOutbound()) != null) {
+                client.writeInbound(frame);
+            }
+            decoded = client.readInbound();
+            Assert.assertEquals(type.name(), large, ((RpcResponse) decoded.getBody()).getReturnValue());
+
+            // 小消息仍编码到普通 ByteBuf 中, 大消息的重新编码不影响之后的消息
+            Assert.assertTrue(client.writeOutbound(message(type, MessageType.REQUEST, request("liujue"))));
+            frame = client.readOutbound();
+            Assert.assertFalse(type.name(), frame instanceof CompositeByteBuf);
+            Assert.assertTrue(server.writeInbound(frame));
+            decoded = server.readInbound();
+            Assert.assertArrayEquals(type.name(), new Object[]{"liujue", 24},
+                    ((RpcRequest) decoded.getBody()).getParameterValues());
+
+            Assert.assertFalse(client.finish());
+            Assert.assertFalse(server.finish());
+        }
+    }
+
+    @Test
+    public void testMessageTooLongOnSend() {
+        char[] chars = new char[100 * 1024];
+        Arrays.fill(chars, 'x');
+        EmbeddedChannel client = new EmbeddedChannel(new RpcFrameDecoder(),
+                new SharableRpcMessageCodec(1024, 10 * 1024));
+        try {
+            client.writeOutbound(message(SerializerType.HESSIAN, MessageType.REQUEST, request(new String(chars))));
+            Assert.fail();
+        } catch (EncoderException e) {
+            // expected
+        }
+        // 超过最大消息长度的消息在发送前失败, 不会发出任何分块
+        Assert.assertTrue(client.outboundMessages().isEmpty());
+        Assert.assertTrue(client.writeOutbound(message(SerializerType.HESSIAN, MessageType.REQUEST, request("liujue"))));
+        ByteBuf frame = client.readOutbound();
+        frame.release();
+        Assert.assertFalse(client.finish());
+    }
+
+    @Test(expected = TooLongFrameException.class)
+    public void testChunkedMessageTooLong() {
+        char[] chars = new char[100 * 1024];
+        Arrays.fill(chars, 'x');
+        EmbeddedChannel client = new EmbeddedChannel(new RpcFrameDecoder(), new SharableRpcMessageCodec(1024, 1 << 20));
+        EmbeddedChannel server = new EmbeddedChannel(new RpcFrameDecoder(),
+                new SharableRpcMessageCodec(1024, 10 * 1024));
+        Assert.assertTrue(client.writeOutbound(message(SerializerType.HESSIAN, MessageType.REQUEST,
+                request(new String(chars)))));
+        ByteBuf frame;
+        while ((frame = client.readOutbound()) != null) {
+            server.writeInbound(frame);
+        }
+    }
+
+    @Test
+    public void testCompressedMessage() {
+        char[] chars = new char[100 * 1024];
+        Arrays.fill(chars, 'x');
+        String large = new String(chars);
+        byte deflate = CompressType.DEFLATE.getType();
+        for (SerializerType type : SerializerType.values()) {
+            // 正文超过 1 KB 时压缩, 压缩后仍超过分块大小的消息再拆分为分块帧
+            EmbeddedChannel client = new EmbeddedChannel(new RpcFrameDecoder(),
+                    new SharableRpcMessageCodec(256, 1 << 20, deflate, 1024));
+            EmbeddedChannel server = new EmbeddedChannel(new RpcFrameDecoder(),
+                    new SharableRpcMessageCodec(256, 1 << 20, deflate, 1024));
+
+            // 未达到阈值的消息不压缩
+            Assert.assertTrue(client.writeOutbound(message(type, MessageType.REQUEST, request("liujue"))));
+            ByteBuf frame = client.readOutbound();
+            Assert.assertEquals(type.name(), CompressType.NONE.getType(), frame.getByte(6));
+            Assert.assertTrue(server.writeInbound(frame));
+            RpcMessage decoded = server.readInbound();
+            Assert.assertEquals(CompressType.NONE.getType(), decoded.getMessageHeader().getCompressType());
+
+            Assert.assertTrue(client.writeOutbound(message(type, MessageType.REQUEST, request(large))));
+            int length = 0;
+            while ((frame = client.readOutbound()) != null) {
+                Assert.assertEquals(type.name(), deflate, frame.getByte(6));
+                length += frame.readableBytes();
+                server.writeInbound(frame);
+            }
+            Assert.assertTrue(type.name(), length < large.length() / 10);
+            decoded = server.readInbound();
+            Assert.assertEquals(deflate, decoded.getMessageHeader().getCompressType());
+            Assert.assertArrayEquals(type.name(), new Object[]{large, 24},
+                    ((RpcRequest) decoded.getBody()).getParameterValues());
+
+            // 对端未开启压缩时同样可以解压
+            EmbeddedChannel plain = new EmbeddedChannel(new RpcFrameDecoder(), new SharableRpcMessageCodec());
+            RpcResponse response = new RpcResponse();
+            response.setReturnValue(large);
+            Assert.assertTrue(server.writeOutbound(message(type, MessageType.RESPONSE, response)));
+            while ((frame = server.readOutbound()) != null) {
+                plain.writeInbound(frame);
+            }
+            decoded = plain.readInbound();
+            Assert.assertEquals(type.name(), large, ((RpcResponse) decoded.getBody()).getReturnValue());
+
+            Assert.assertFalse(client.finish());
+            Assert.assertFalse(server.finish());
+            Assert.assertFalse(plain.finish());
+        }
+    }
+
+    private int roundTrip(EmbeddedChannel client, EmbeddedChannel server, RpcRequest request, SerializerType type) {
+        Assert.assertTrue(client.writeOutbound(message(type, MessageType.REQUEST, request)));
+        ByteBuf frame = client.readOutbound();
+        // 回填的正文长度应与实际写入的正文字节数一致
+        int length = frame.readableBytes();
+        Assert.assertEquals(length - ProtocolConstants.HEADER_LENGTH, frame.getInt(ProtocolConstants.BODY_LENGTH_OFFSET));
+
+        Assert.assertTrue(server.writeInbound(frame));
+        RpcMessage decoded = server.readInbound();
+        RpcRequest body = (RpcRequest) decoded.getBody();
+        Assert.assertEquals(type.name(), request.getServiceName(), body.getServiceName());
+        Assert.assertEquals(type.name(), request.getMethod(), body.getMethod());
+        Assert.assertArrayEquals(type.name(), request.getParameterTypes(), body.getParameterTypes());
+        Assert.assertArrayEquals(type.name(), request.getParameterValues(), body.getParameterValues());
+        return length;
+    }
+
+    private RpcMessage transfer(EmbeddedChannel from, EmbeddedChannel to, RpcMessage message) {
+        Assert.assertTrue(from.writeOutbound(message));
+        Assert.assertTrue(to.writeInbound((ByteBuf) from.readOutbound()));
+        return to.readInbound();
+    }
+
+    private RpcRequest request(String name) {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName("com.lj.rpc.api.service.HelloService-1.0");
+        request.setMethod("sayHello");
+        request.setParameterTypes(new Class<?>[]{String.class, int.class});
+        request.setParameterValues(new Object[]{name, 24});
+        return request;
+    }
+
+    private RpcMessage message(SerializerType type, MessageType messageType, Object body) {
+        MessageHeader header = MessageHeader.build(type.name());
+        header.setMessageType(messageType.getType());
+        RpcMessage message = new RpcMessage();
+        message.setMessageHeader(header);
+        message.setBody(body);
+        return message;
+    }
+
+    static class Unloadable {
+    }
+}
@@ -0,0 +1,104 @@
+package com.lj.rpc.factory;
+
+import com.lj.rpc.core.factory.NettyEventLoopFactory;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传输方式选择测试类
+ *
+ * @author liujue
+ */
+public class NettyEventLoopFactoryTest {
+
+    @Test
+    public void testUseEpoll() {
+        Assert.assertFalse(NettyEventLoopFactory.useEpoll("nio"));
+        Assert.assertEquals(Epoll.isAvailable(), NettyEventLoopFactory.useEpoll(null));
+        Assert.assertEquals(Epoll.isAvailable(), NettyEventLoopFactory.useEpoll("netty"));
+        // 强制 epoll 但不可用时退回 nio
+        Assert.assertEquals(Epoll.isAvailable(), NettyEventLoopFactory.useEpoll("EPOLL"));
+
+        Assert.assertEquals(NioSocketChannel.class, NettyEventLoopFactory.socketChannelClass(false));
+        Assert.assertEquals(NioServerSocketChannel.class, NettyEventLoopFactory.serverSocketChannelClass(false));
+        Assert.assertEquals(EpollSocketChannel.class, NettyEventLoopFactory.socketChannelClass(true));
+        Assert.assertEquals(EpollServerSocketChannel.class, NettyEventLoopFactory.serverSocketChannelClass(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedTransport() {
+        NettyEventLoopFactory.useEpoll("io_uring");
+    }
+
+    @Test
+    public void testNioEcho() throws Exception {
+        echo(false);
+    }
+
+    @Test
+    public void testEpollEcho() throws Exception {
+        Assume.assumeTrue(Epoll.isAvailable());
+        echo(true);
+    }
+
+    /**
+     * 使用指定的传输方式在本机回环地址上完成一次请求应答
+     */
+    private void echo(boolean epoll) throws Exception {
+        EventLoopGroup group = NettyEventLoopFactory.eventLoopGroup(epoll, 1, "test-" + (epoll ? "epoll" : "nio"));
+        try {
+            ServerBootstrap serverBootstrap = new ServerBootstrap();
+            NettyEventLoopFactory.configure(serverBootstrap, epoll);
+            Channel server = serverBootstrap.group(group)
+                    .channel(NettyEventLoopFactory.serverSocketChannelClass(epoll))
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ctx.writeAndFlush(msg);
+                        }
+                    })
+                    .bind(InetAddress.getLoopbackAddress(), 0).sync().channel();
+
+            CompletableFuture<String> reply = new CompletableFuture<>();
+            Bootstrap bootstrap = new Bootstrap();
+            NettyEventLoopFactory.configure(bootstrap, epoll);
+            Channel client = bootstrap.group(group)
+                    .channel(NettyEventLoopFactory.socketChannelClass(epoll))
+                    .handler(new SimpleChannelInboundHandler<ByteBuf>() {
+                        @Override
+                        protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) {
+                            reply.complete(msg.toString(StandardCharsets.UTF_8));
+                        }
+                    })
+                    .connect((InetSocketAddress) server.localAddress()).sync().channel();
+            client.writeAndFlush(Unpooled.copiedBuffer("ping", StandardCharsets.UTF_8));
+
+            Assert.assertEquals("ping", reply.get(5, TimeUnit.SECONDS));
+            client.close().sync();
+            server.close().sync();
+        } finally {
+            group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.lj.rpc.factory;
+
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.factory.SerializationFactory;
+import com.lj.rpc.core.serialization.Serialization;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 序列化算法工厂测试类
+ *
+ * @author liujue
+ */
+public class SerializationFactoryTest {
+
+    @Test
+    public void testLookupByType() {
+        for (SerializerType type : SerializerType.values()) {
+            Serialization serialization = SerializationFactory.getSerialization(type.getType());
+            Assert.assertEquals(type.getType(), serialization.getType());
+            // 每种算法只有一个长期存活的实例
+            Assert.assertSame(serialization, SerializationFactory.getSerialization(type.getType()));
+            Assert.assertSame(serialization, SerializationFactory.getSerialization(type));
+        }
+    }
+
+    @Test
+    public void testLookupByName() {
+        Assert.assertEquals(SerializerType.KRYO.getType(), SerializationFactory.getType("kryo"));
+        Assert.assertEquals(SerializerType.PROTOSTUFF.getType(), SerializationFactory.getType("ProtoStuff"));
+        // 未知名称退化为 HESSIAN
+        Assert.assertEquals(SerializerType.HESSIAN.getType(), SerializationFactory.getType("unknown"));
+        Assert.assertEquals(SerializerType.HESSIAN.getType(), SerializationFactory.getType(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownType() {
+        SerializationFactory.getSerialization((byte) 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeType() {
+        // 协议头中的类型编号按无符号数索引, 不会越界
+        SerializationFactory.getSerialization((byte) -1);
+    }
+}
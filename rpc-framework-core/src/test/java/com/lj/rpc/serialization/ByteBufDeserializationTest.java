@@ -0,0 +1,83 @@
+package com.lj.rpc.serialization;
+
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.factory.SerializationFactory;
+import com.lj.rpc.core.serialization.Serialization;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 直接从 ByteBuf 反序列化的测试类
+ *
+ * @author liujue
+ */
+public class ByteBufDeserializationTest {
+
+    @Test
+    public void testRequest() {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName("com.lj.rpc.api.service.HelloService-1.0");
+        request.setMethod("sayHello");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameterValues(new Object[]{"liujue"});
+        for (SerializerType type : SerializerType.values()) {
+            Serialization serialization = SerializationFactory.getSerialization(type);
+            byte[] bytes = serialization.serialize(request);
+            for (ByteBuf buf : buffers(bytes)) {
+                try {
+                    RpcRequest copy = serialization.deserialize(RpcRequest.class, body(buf, bytes.length));
+                    Assert.assertEquals(type.name(), request.getServiceName(), copy.getServiceName());
+                    Assert.assertEquals(type.name(), request.getMethod(), copy.getMethod());
+                    Assert.assertArrayEquals(type.name(), request.getParameterValues(), copy.getParameterValues());
+                } finally {
+                    buf.release();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testResponse() {
+        RpcResponse response = new RpcResponse();
+        response.setReturnValue("hello liujue");
+        for (SerializerType type : SerializerType.values()) {
+            Serialization serialization = SerializationFactory.getSerialization(type);
+            byte[] bytes = serialization.serialize(response);
+            for (ByteBuf buf : buffers(bytes)) {
+                try {
+                    RpcResponse copy = serialization.deserialize(RpcResponse.class, body(buf, bytes.length));
+                    Assert.assertEquals(type.name(), response.getReturnValue(), copy.getReturnValue());
+                } finally {
+                    buf.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * 正文前后都有其他数据: 堆内存, 直接内存, 以及由两个分块组成的不连续缓冲区
+     */
+    private static ByteBuf[] buffers(byte[] bytes) {
+        ByteBuf heap = Unpooled.buffer().writeLong(-1L).writeBytes(bytes).writeLong(-1L);
+        ByteBuf direct = Unpooled.directBuffer().writeLong(-1L).writeBytes(bytes).writeLong(-1L);
+        int half = bytes.length / 2;
+        CompositeByteBuf composite = Unpooled.compositeBuffer();
+        composite.addComponent(true, Unpooled.directBuffer().writeLong(-1L).writeBytes(bytes, 0, half));
+        composite.addComponent(true, Unpooled.directBuffer().writeBytes(bytes, half, bytes.length - half)
+                .writeLong(-1L));
+        return new ByteBuf[]{heap, direct, composite};
+    }
+
+    /**
+     * 与编解码器一致, 取出正文部分的切片
+     */
+    private static ByteBuf body(ByteBuf buf, int length) {
+        buf.skipBytes(Long.BYTES);
+        return buf.readSlice(length);
+    }
+}
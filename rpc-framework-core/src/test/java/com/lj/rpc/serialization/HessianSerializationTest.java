@@ -0,0 +1,54 @@
+package com.lj.rpc.serialization;
+
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.exception.SerializationException;
+import com.lj.rpc.core.factory.SerializationFactory;
+import com.lj.rpc.core.serialization.Serialization;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Hessian 序列化测试类
+ *
+ * @author liujue
+ */
+public class HessianSerializationTest {
+
+    private final Serialization serialization = SerializationFactory.getSerialization(SerializerType.HESSIAN);
+
+    @Test
+    public void testFailedReadDoesNotLeak() {
+        char[] chars = new char[100];
+        Arrays.fill(chars, 'x');
+        ByteBuf bad = Unpooled.buffer();
+        serialization.serializeArguments(new Object[]{new String(chars)}, new Class<?>[]{String.class}, bad);
+        try {
+            // 字符串不能按 int 读取, 读取中途失败, 预读缓冲区中仍有剩余字节
+            serialization.deserializeArguments(new Class<?>[]{int.class}, bad);
+            Assert.fail();
+        } catch (SerializationException e) {
+            // expected
+        }
+        Assert.assertEquals("world", roundTrip("world"));
+    }
+
+    @Test
+    public void testUnconsumedBodyDoesNotLeak() {
+        ByteBuf body = Unpooled.buffer();
+        serialization.serialize("hello", body);
+        serialization.serialize("junk", body);
+        // 只读取第一个对象, 第二个对象留在预读缓冲区中
+        Assert.assertEquals("hello", serialization.deserialize(Object.class, body));
+        Assert.assertEquals("world", roundTrip("world"));
+    }
+
+    private Object roundTrip(Object value) {
+        ByteBuf buf = Unpooled.buffer();
+        serialization.serialize(value, buf);
+        return serialization.deserialize(Object.class, buf);
+    }
+}
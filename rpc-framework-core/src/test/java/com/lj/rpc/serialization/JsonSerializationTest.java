@@ -0,0 +1,78 @@
+package com.lj.rpc.serialization;
+
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.exception.RpcException;
+import com.lj.rpc.core.factory.SerializationFactory;
+import com.lj.rpc.core.serialization.Serialization;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * JSON 序列化测试类
+ *
+ * @author liujue
+ */
+public class JsonSerializationTest {
+
+    private final Serialization serialization = SerializationFactory.getSerialization(SerializerType.JSON);
+
+    @Test
+    public void testTypedParameters() {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName("com.lj.rpc.api.service.UserService-1.0");
+        request.setMethod("addUser");
+        request.setParameterTypes(new Class<?>[]{Account.class, int.class, long.class});
+        request.setParameterValues(new Object[]{new Account("liujue", 24), 1, 2L});
+
+        RpcRequest copy = serialization.deserialize(RpcRequest.class, serialization.serialize(request));
+        Assert.assertArrayEquals(request.getParameterTypes(), copy.getParameterTypes());
+        // 参数按照声明的类型还原, 而不是 Map
+        Assert.assertEquals(new Account("liujue", 24), copy.getParameterValues()[0]);
+        Assert.assertEquals(1, copy.getParameterValues()[1]);
+        Assert.assertEquals(2L, copy.getParameterValues()[2]);
+    }
+
+    @Test
+    public void testTypedReturnValue() {
+        RpcResponse response = new RpcResponse();
+        response.setReturnValue(new Account("liujue", 24));
+
+        RpcResponse copy = serialization.deserialize(RpcResponse.class, serialization.serialize(response));
+        Assert.assertEquals(response.getReturnValue(), copy.getReturnValue());
+    }
+
+    @Test
+    public void testExceptionValue() {
+        RpcResponse response = new RpcResponse();
+        response.setExceptionValue(new RpcException("Error in remote procedure call, boom"));
+
+        RpcResponse copy = serialization.deserialize(RpcResponse.class, serialization.serialize(response));
+        Assert.assertNull(copy.getReturnValue());
+        Assert.assertEquals(RpcException.class, copy.getExceptionValue().getClass());
+        Assert.assertEquals("Error in remote procedure call, boom", copy.getExceptionValue().getMessage());
+    }
+
+    @Test
+    public void testExceptionTypeIgnored() {
+        // 对端提供的异常类名不会被加载, 异常统一还原为 RpcException
+        byte[] bytes = "{\"exceptionType\":\"java.lang.IllegalStateException\",\"exceptionMessage\":\"boom\"}".getBytes();
+        RpcResponse copy = serialization.deserialize(RpcResponse.class, bytes);
+        Assert.assertEquals(RpcException.class, copy.getExceptionValue().getClass());
+        Assert.assertEquals("boom", copy.getExceptionValue().getMessage());
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Account {
+
+        private String name;
+
+        private Integer age;
+    }
+}
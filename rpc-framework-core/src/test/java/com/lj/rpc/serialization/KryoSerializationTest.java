@@ -0,0 +1,33 @@
+package com.lj.rpc.serialization;
+
+import com.lj.rpc.core.serialization.kryo.KryoSerialization;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Kryo 序列化测试类
+ *
+ * @author liujue
+ */
+public class KryoSerializationTest {
+
+    @Test
+    public void testSameConfigurationTwice() {
+        KryoSerialization kryo = new KryoSerialization();
+        kryo.configure(Collections.singletonList(Account.class), false);
+        kryo.configure(Collections.singletonList(Account.class), false);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConflictingConfiguration() {
+        KryoSerialization kryo = new KryoSerialization();
+        kryo.configure(Collections.singletonList(Account.class), false);
+        // 同一进程中另一端的注册列表不同, 不能静默覆盖
+        kryo.configure(Arrays.asList(Account.class, String.class), false);
+    }
+
+    static class Account {
+    }
+}
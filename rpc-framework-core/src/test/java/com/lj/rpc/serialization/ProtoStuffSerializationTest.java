@@ -0,0 +1,69 @@
+package com.lj.rpc.serialization;
+
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.factory.SerializationFactory;
+import com.lj.rpc.core.serialization.Serialization;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ProtoStuff 序列化并发测试类
+ *
+ * @author liujue
+ */
+public class ProtoStuffSerializationTest {
+
+    private static final int THREADS = 64;
+
+    private static final int ROUNDS = 2000;
+
+    @Test
+    public void testConcurrentRoundTrip() throws Exception {
+        Serialization serialization = SerializationFactory.getSerialization(SerializerType.PROTOSTUFF);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int id = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < ROUNDS; i++) {
+                        // 每个线程使用各自不同的内容, 缓冲区一旦被共享结果就会串掉
+                        String value = "thread-" + id + "-" + i;
+                        RpcRequest request = new RpcRequest();
+                        request.setServiceName("service-" + id);
+                        request.setMethod("method");
+                        request.setParameterTypes(new Class<?>[]{String.class});
+                        request.setParameterValues(new Object[]{value});
+
+                        RpcRequest copy = serialization.deserialize(RpcRequest.class, serialization.serialize(request));
+                        Assert.assertEquals(value, copy.getParameterValues()[0]);
+
+                        ByteBuf buf = PooledByteBufAllocator.DEFAULT.directBuffer();
+                        try {
+                            serialization.serialize(request, buf);
+                            copy = serialization.deserialize(RpcRequest.class, buf);
+                        } finally {
+                            buf.release();
+                        }
+                        Assert.assertEquals(value, copy.getParameterValues()[0]);
+                        Assert.assertEquals("service-" + id, copy.getServiceName());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.lj.rpc.server.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 标记非阻塞的服务方法, 该方法的请求直接在 Netty IO 线程中执行, 不提交到业务线程池
+ *
+ * <p>
+ * 只适用于耗时极短且不会阻塞的方法 (如读取本地缓存), 省去线程切换与排队的开销;
+ * 阻塞的方法会拖慢同一 IO 线程上所有连接的读写。可以标注在服务接口或实现类的方法上,
+ * 整个服务都不阻塞时使用 {@link RpcService#nonBlocking()}
+ * </p>
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/8/2 10:30
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface NonBlocking {
+}
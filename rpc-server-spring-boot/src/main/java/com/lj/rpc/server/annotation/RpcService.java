@@ -29,4 +29,27 @@ public @interface RpcService {
      * 版本号，默认 1.0
      */
     String version() default "1.0";
+
+    /**
+     * 服务的全部方法是否都不阻塞, 为 true 时请求直接在 Netty IO 线程中执行, 默认 false;
+     * 只需标记部分方法时使用 {@link NonBlocking}
+     */
+    boolean nonBlocking() default false;
+
+    /**
+     * 请求的执行顺序, 可选: none, channel (同一连接的请求按到达顺序执行), key (第一个参数相同的请求按到达顺序执行);
+     * 默认 "", 使用服务端配置 rpc.server.ordering。有序执行的请求不使用独立线程池,
+     * 非阻塞方法 ({@link #nonBlocking()}) 在 IO 线程中执行, 只保证同一连接内的顺序
+     */
+    String ordering() default "";
+
+    /**
+     * 独立线程池的线程数, 大于 0 时该服务的请求在独立的线程池中执行, 与其他服务隔离; 默认 0, 使用共享线程池
+     */
+    int executorThreads() default 0;
+
+    /**
+     * 独立线程池的队列长度, 仅 executorThreads 大于 0 时生效, 默认 1024
+     */
+    int executorQueueSize() default 1024;
 }
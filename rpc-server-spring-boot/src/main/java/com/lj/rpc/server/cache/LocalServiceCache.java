@@ -1,5 +1,17 @@
 package com.lj.rpc.server.cache;
 
+import com.lj.rpc.core.entity.MethodDescriptor;
+import com.lj.rpc.server.annotation.NonBlocking;
+import com.lj.rpc.server.annotation.RpcService;
+import com.lj.rpc.server.invoker.MethodInvoker;
+import com.lj.rpc.server.invoker.MethodInvokerFactory;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -10,6 +22,17 @@ import java.util.concurrent.ConcurrentHashMap;
  * 服务注册后需要拷贝一份到本地服务缓存中
  * </p>
  *
+ * <p>
+ * 注册服务时为其每个对外暴露的方法分配一个全局编号 (只增不减, 同名服务重复注册时沿用原编号),
+ * 并预先生成对应的 {@link MethodInvoker}; 客户端通过握手获知方法表后只发送编号,
+ * 请求处理时直接按下标取出调用器
+ * </p>
+ *
+ * <p>
+ * 同时记录每个方法是否为非阻塞方法 ({@link NonBlocking} 或 {@link RpcService#nonBlocking()}),
+ * 非阻塞方法的请求直接在 IO 线程中执行
+ * </p>
+ *
  * @author liujue
  */
 public class LocalServiceCache {
@@ -20,13 +43,87 @@ public class LocalServiceCache {
     private static final Map<String, Object> SERVICE_MAP = new ConcurrentHashMap<>();
 
     /**
-     * 添加到本地缓存
+     * key: 方法描述, value: 全局方法编号
+     */
+    private static final Map<MethodDescriptor, Integer> METHOD_IDS = new ConcurrentHashMap<>();
+
+    private static final Comparator<Method> METHOD_ORDER = Comparator.comparing(Method::getName)
+            .thenComparing(method -> Arrays.toString(method.getParameterTypes()));
+
+    /**
+     * 下标即全局方法编号, 写时复制
+     */
+    private static volatile MethodInvoker[] invokers = new MethodInvoker[0];
+
+    /**
+     * 与 invokers 一一对应, 是否为非阻塞方法
+     */
+    private static volatile boolean[] nonBlocking = new boolean[0];
+
+    /**
+     * 与 invokers 一一对应的方法描述, 握手时下发给客户端
+     */
+    private static volatile MethodDescriptor[] descriptors = new MethodDescriptor[0];
+
+    /**
+     * 添加到本地缓存, 导出服务实例的全部 public 方法
      *
      * @param serviceName 服务名称
      * @param object      服务注册信息实体类(ServiceMessage)
      */
     public static void addService(String serviceName, Object object) {
+        addService(serviceName, object, object.getClass());
+    }
+
+    /**
+     * 添加到本地缓存, 并为 exportedType 声明的方法分配全局编号
+     *
+     * @param serviceName  服务名称
+     * @param object       服务注册信息实体类(ServiceMessage)
+     * @param exportedType 对外暴露的服务类型, 通常为服务接口
+     */
+    public static synchronized void addService(String serviceName, Object object, Class<?> exportedType) {
         SERVICE_MAP.put(serviceName, object);
+        Method[] methods = exportedType.getMethods();
+        // 按方法签名排序, 相同的代码每次启动得到相同的编号
+        Arrays.sort(methods, METHOD_ORDER);
+        List<MethodInvoker> newInvokers = new ArrayList<>(Arrays.asList(invokers));
+        boolean[] newNonBlocking = Arrays.copyOf(nonBlocking, invokers.length + methods.length);
+        RpcService rpcService = object.getClass().getAnnotation(RpcService.class);
+        boolean serviceNonBlocking = rpcService != null && rpcService.nonBlocking();
+        for (Method method : methods) {
+            if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            MethodDescriptor descriptor =
+                    new MethodDescriptor(serviceName, method.getName(), method.getParameterTypes());
+            Method target;
+            try {
+                target = object.getClass().getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(String.format("The service [%s] does not implement %s.",
+                        serviceName, method), e);
+            }
+            MethodInvoker invoker = MethodInvokerFactory.create(descriptor, object, target);
+            Integer id = METHOD_IDS.get(descriptor);
+            if (id == null) {
+                id = newInvokers.size();
+                METHOD_IDS.put(descriptor, id);
+                newInvokers.add(invoker);
+            } else {
+                newInvokers.set(id, invoker);
+            }
+            newNonBlocking[id] = serviceNonBlocking || method.isAnnotationPresent(NonBlocking.class)
+                    || target.isAnnotationPresent(NonBlocking.class);
+        }
+        MethodDescriptor[] newDescriptors = new MethodDescriptor[newInvokers.size()];
+        for (int i = 0; i < newDescriptors.length; i++) {
+            newDescriptors[i] = newInvokers.get(i).getDescriptor();
+        }
+        // 先发布调用器, 保证客户端拿到的编号一定能找到对应的调用器
+        nonBlocking = Arrays.copyOf(newNonBlocking, newInvokers.size());
+        invokers = newInvokers.toArray(new MethodInvoker[0]);
+        descriptors = newDescriptors;
     }
 
     /**
@@ -39,6 +136,58 @@ public class LocalServiceCache {
         return SERVICE_MAP.get(serviceName);
     }
 
+    /**
+     * 根据全局方法编号获取调用器
+     *
+     * @param methodId 全局方法编号
+     * @return 调用器, 编号不存在时返回 null
+     */
+    public static MethodInvoker getInvoker(int methodId) {
+        MethodInvoker[] current = invokers;
+        return methodId >= 0 && methodId < current.length ? current[methodId] : null;
+    }
+
+    /**
+     * 根据方法描述获取调用器, 用于握手完成之前的请求
+     *
+     * @param descriptor 方法描述
+     * @return 调用器, 方法未导出时返回 null
+     */
+    public static MethodInvoker getInvoker(MethodDescriptor descriptor) {
+        return getInvoker(getMethodId(descriptor));
+    }
+
+    /**
+     * 根据方法描述获取全局方法编号
+     *
+     * @param descriptor 方法描述
+     * @return 全局方法编号, 方法未导出时返回 -1
+     */
+    public static int getMethodId(MethodDescriptor descriptor) {
+        Integer id = METHOD_IDS.get(descriptor);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 判断方法是否为非阻塞方法
+     *
+     * @param methodId 全局方法编号
+     * @return 非阻塞方法返回 true, 编号不存在时返回 false
+     */
+    public static boolean isNonBlocking(int methodId) {
+        boolean[] current = nonBlocking;
+        return methodId >= 0 && methodId < current.length && current[methodId];
+    }
+
+    /**
+     * 获取当前导出的全部方法, 下标即全局方法编号
+     *
+     * @return 方法表
+     */
+    public static MethodDescriptor[] getMethodDescriptors() {
+        return descriptors;
+    }
+
     /**
      * 将服务从本地缓存中删除
      *
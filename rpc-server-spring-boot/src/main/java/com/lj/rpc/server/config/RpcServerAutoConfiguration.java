@@ -1,8 +1,11 @@
 package com.lj.rpc.server.config;
 
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.factory.SerializationFactory;
 import com.lj.rpc.core.registry.ServiceRegistry;
 import com.lj.rpc.core.registry.nacos.NacosServiceRegistry;
 import com.lj.rpc.core.registry.zookeeper.ZookeeperServiceRegistry;
+import com.lj.rpc.core.serialization.kryo.KryoSerialization;
 import com.lj.rpc.server.spring.RpcServerBeanPostProcessor;
 import com.lj.rpc.server.transport.RpcServer;
 import com.lj.rpc.server.transport.netty.NettyRpcServer;
@@ -55,14 +58,17 @@ public class RpcServerAutoConfiguration {
     }
 
     /**
-     * 创建 RpcServer 的实体类 bean, 没有显式配置时默认使用 netty
+     * 创建 RpcServer 的实体类 bean, netty/epoll/nio 三种传输方式均由 NettyRpcServer 实现
      */
     @Bean(name = "rpcServer")
     @Primary
     @ConditionalOnMissingBean
-    @ConditionalOnProperty(prefix = "rpc.server", name = "transport", havingValue = "netty", matchIfMissing = true)
+    @ConditionalOnProperty(prefix = "rpc.server", name = "transport", matchIfMissing = true)
     public RpcServer nettyRpcClient() {
-        return new NettyRpcServer();
+        // 在服务启动之前完成序列化算法的配置
+        KryoSerialization kryo = (KryoSerialization) SerializationFactory.getSerialization(SerializerType.KRYO);
+        kryo.configure(rpcServerProperties.getKryoRegistrations(), rpcServerProperties.getKryoRegistrationRequired());
+        return new NettyRpcServer(rpcServerProperties);
     }
 
     /**
@@ -1,10 +1,13 @@
 package com.lj.rpc.server.config;
 
+import com.lj.rpc.core.constant.ProtocolConstants;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * RPC 服务端相关参数类
@@ -31,7 +34,7 @@ public class RpcServerProperties {
     private String appName;
 
     /**
-     * 网络传输方式, 默认值为: netty
+     * 网络传输方式, 可选: netty (epoll 可用时使用 epoll, 否则使用 nio), epoll, nio, 默认值为: netty
      */
     private String transport;
 
@@ -45,6 +48,107 @@ public class RpcServerProperties {
      */
     private String registryAddr;
 
+    /**
+     * 监听 socket 的数量, 大于 1 时以 SO_REUSEPORT 在同一端口绑定多个 socket, 每个 socket 由独立的 boss 线程 accept,
+     * 由内核在它们之间分配新连接; 仅 epoll 传输方式支持, 默认值为 1
+     */
+    private Integer acceptors;
+
+    /**
+     * boss 线程数, 0 表示与 acceptors 相同, 默认值为 0
+     */
+    private Integer bossThreads;
+
+    /**
+     * worker 线程数, 0 表示使用 Netty 默认值 (CPU 核数 * 2), 默认值为 0
+     */
+    private Integer workerThreads;
+
+    /**
+     * 每个监听 socket 的 accept 队列长度 (SO_BACKLOG), 实际值不超过内核参数 net.core.somaxconn, 默认值为 128
+     */
+    private Integer backlog;
+
+    /**
+     * 是否将 worker 线程绑定到 CPU 核, 需要 classpath 中存在 net.openhft:affinity, 默认值为 false
+     */
+    private Boolean workerAffinity;
+
+    /**
+     * 业务执行方式, 可选: pool (线程池), virtual (每个请求一个虚拟线程, 需要 JDK 21 及以上版本,
+     * 否则退回 pool), 默认值为 pool
+     */
+    private String executorMode;
+
+    /**
+     * virtual 模式下同时执行的请求数上限, 超过时请求立即以"服务端繁忙"失败, 默认值为 10000
+     */
+    private Integer virtualThreadLimit;
+
+    /**
+     * 共享业务线程池的线程数, 默认值为 CPU 核数 * 2
+     */
+    private Integer executorThreads;
+
+    /**
+     * 共享业务线程池的队列长度, 队列满时请求立即以"服务端繁忙"失败, 默认值为 1024
+     */
+    private Integer executorQueueSize;
+
+    /**
+     * 请求的执行顺序, 可选: none (不保证顺序), channel (同一连接的请求按到达顺序执行),
+     * key (第一个参数相同的请求按到达顺序执行); 可以被 RpcService#ordering 覆盖, 默认值为 none
+     */
+    private String ordering;
+
+    /**
+     * 有序执行使用的单线程执行队列 (lane) 数量, 连接或 key 按哈希分配到固定的 lane, 默认值为 CPU 核数 * 2
+     */
+    private Integer orderedLanes;
+
+    /**
+     * 单帧最大长度 (含协议头), 超过时连接上抛出 TooLongFrameException, 需大于对端的分块大小, 默认值为 1 MB
+     */
+    private Integer maxFrameLength;
+
+    /**
+     * 分块大小, 正文超过该长度的消息拆分为多个分块帧发送, 0 表示不分块, 默认值为 64 KB
+     */
+    private Integer chunkSize;
+
+    /**
+     * 消息正文的最大长度, 接收时为分块消息重组后 (以及压缩消息解压后) 的长度; 超过该长度的消息在发送前即失败, 默认值为 64 MB
+     */
+    private Integer maxMessageLength;
+
+    /**
+     * 发送响应使用的压缩算法, 可选: none, deflate 以及扩展文件中自定义的算法, 默认值为 none;
+     * 对端根据协议头中的压缩方式解压, 两端无需配置相同的值
+     */
+    private String compress;
+
+    /**
+     * 压缩阈值, 正文超过该长度 (字节) 时才压缩, 默认值为 4096
+     */
+    private Integer compressThreshold;
+
+    /**
+     * 合并 flush 的最大消息数: 同一轮事件循环中写出的响应合并为一次 flush (系统调用),
+     * 累计达到该数量时立即 flush; 0 表示关闭, 每条响应单独 flush, 默认值为 0
+     */
+    private Integer flushConsolidationLimit;
+
+    /**
+     * Kryo 序列化额外注册的类型 (如服务接口中的 POJO), 按顺序分配紧凑的类型编号,
+     * 客户端与服务端必须配置相同的列表; 同一进程同时作为客户端与服务端时, 两端的配置也必须相同, 否则启动失败
+     */
+    private List<Class<?>> kryoRegistrations;
+
+    /**
+     * Kryo 是否开启严格模式 (registrationRequired), 默认值为 false
+     */
+    private Boolean kryoRegistrationRequired;
+
     public RpcServerProperties() throws UnknownHostException {
         this.address = InetAddress.getLocalHost().getHostAddress();
         this.port = 8080;
@@ -52,5 +156,24 @@ public class RpcServerProperties {
         this.transport = "netty";
         this.registry = "zookeeper";
         this.registryAddr = "127.0.0.1:2181";
+        this.acceptors = 1;
+        this.bossThreads = 0;
+        this.workerThreads = 0;
+        this.backlog = 128;
+        this.workerAffinity = false;
+        this.executorMode = "pool";
+        this.virtualThreadLimit = 10000;
+        this.executorThreads = Runtime.getRuntime().availableProcessors() * 2;
+        this.executorQueueSize = 1024;
+        this.ordering = "none";
+        this.orderedLanes = Runtime.getRuntime().availableProcessors() * 2;
+        this.maxFrameLength = ProtocolConstants.DEFAULT_MAX_FRAME_LENGTH;
+        this.chunkSize = ProtocolConstants.DEFAULT_CHUNK_SIZE;
+        this.maxMessageLength = ProtocolConstants.DEFAULT_MAX_MESSAGE_LENGTH;
+        this.compress = "none";
+        this.compressThreshold = ProtocolConstants.DEFAULT_COMPRESS_THRESHOLD;
+        this.flushConsolidationLimit = 0;
+        this.kryoRegistrations = new ArrayList<>();
+        this.kryoRegistrationRequired = false;
     }
 }
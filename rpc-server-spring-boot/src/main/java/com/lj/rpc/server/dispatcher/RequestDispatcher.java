@@ -0,0 +1,315 @@
+package com.lj.rpc.server.dispatcher;
+
+import com.lj.rpc.core.config.ThreadPoolConfig;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.factory.ThreadPoolFactory;
+import com.lj.rpc.server.annotation.RpcService;
+import com.lj.rpc.server.cache.LocalServiceCache;
+import com.lj.rpc.server.config.RpcServerProperties;
+import io.netty.channel.Channel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求分发器, 决定 RPC 请求在哪个业务线程池中执行
+ *
+ * <p>
+ * 整个服务端共享一个有界线程池, 所有连接上的请求都提交到这里; 在 {@link RpcService#executorThreads()}
+ * 中声明了独立线程池的服务使用自己的线程池, 慢服务占满线程时不影响其他服务
+ * </p>
+ *
+ * <p>
+ * 线程池使用有界队列与 AbortPolicy, 饱和时 {@link #dispatch} 抛出 {@link RejectedExecutionException},
+ * 由调用方立即返回"服务端繁忙"的失败响应, 客户端无需等到超时即可切换到其他服务端
+ * </p>
+ *
+ * <p>
+ * executorMode 为 virtual 且运行在 JDK 21 及以上版本时, 每个请求在一个新的虚拟线程中执行,
+ * 适合在服务方法中访问数据库等 IO 密集的场景; 此时由同时执行的请求数上限代替线程数与队列长度,
+ * 独立线程池的服务以 executorThreads 作为各自的上限
+ * </p>
+ *
+ * <p>
+ * 需要有序执行的服务 (ordering 为 channel 或 key) 使用一组单线程的执行队列 (lane):
+ * 按连接或第一个参数的哈希值选择固定的 lane, 同一连接或 key 的请求按到达顺序依次执行,
+ * 不同的连接或 key 分散在多个 lane 上并行执行; key 的相等性由第一个参数的 hashCode 决定。
+ * 返回 CompletionStage 的异步方法只保证调用顺序, 不保证完成顺序
+ * </p>
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/8/1 14:20
+ */
+@Slf4j
+public class RequestDispatcher {
+
+    /**
+     * 所有服务共享的执行器, 关闭时使用
+     */
+    private final ExecutorService sharedExecutor;
+
+    /**
+     * 共享执行器的分发入口, virtual 模式下附加了并发上限
+     */
+    private final Executor sharedDispatch;
+
+    /**
+     * 是否使用虚拟线程
+     */
+    private final boolean virtual;
+
+    /**
+     * 不保证顺序
+     */
+    public static final String ORDERING_NONE = "none";
+
+    /**
+     * 同一连接的请求按到达顺序执行
+     */
+    public static final String ORDERING_CHANNEL = "channel";
+
+    /**
+     * 第一个参数相同的请求按到达顺序执行
+     */
+    public static final String ORDERING_KEY = "key";
+
+    /**
+     * key: 服务名称, value: 该服务的执行方式; 只缓存本地已导出的服务
+     */
+    private final Map<String, Route> serviceRoutes = new ConcurrentHashMap<>();
+
+    /**
+     * 没有服务名称或服务未单独配置时的执行方式
+     */
+    private final Route defaultRoute;
+
+    private final int laneCount;
+
+    private final int laneQueueSize;
+
+    /**
+     * 有序执行使用的单线程执行器, 首次需要时创建
+     */
+    private volatile ExecutorService[] lanes;
+
+    public RequestDispatcher(RpcServerProperties properties) {
+        boolean useVirtual = "virtual".equalsIgnoreCase(properties.getExecutorMode());
+        if (useVirtual && !ThreadPoolFactory.isVirtualThreadSupported()) {
+            log.warn("Virtual threads require JDK 21 or later, fall back to the thread pool.");
+            useVirtual = false;
+        }
+        this.virtual = useVirtual;
+        if (virtual) {
+            this.sharedExecutor = ThreadPoolFactory.createVirtualThreadExecutor("rpc-server-virtual-");
+            this.sharedDispatch = new LimitedExecutor(sharedExecutor, properties.getVirtualThreadLimit());
+        } else {
+            this.sharedExecutor = createExecutor(properties.getExecutorThreads(), properties.getExecutorQueueSize());
+            this.sharedDispatch = sharedExecutor;
+        }
+        this.defaultRoute = new Route(parseOrdering(properties.getOrdering()), sharedDispatch);
+        this.laneCount = Math.max(1, properties.getOrderedLanes());
+        this.laneQueueSize = properties.getExecutorQueueSize();
+    }
+
+    /**
+     * 将请求提交到对应的执行器
+     *
+     * @param channel 请求所在的连接
+     * @param request 请求
+     * @param task    请求处理任务
+     * @throws RejectedExecutionException 执行器已饱和
+     */
+    public void dispatch(Channel channel, RpcRequest request, Runnable task) {
+        Route route = route(request.getServiceName());
+        Executor executor;
+        switch (route.ordering) {
+            case ORDERING_CHANNEL:
+                executor = lane(channel.id().hashCode());
+                break;
+            case ORDERING_KEY:
+                Object[] args = request.getParameterValues();
+                executor = lane(args == null || args.length == 0 ? 0 : Objects.hashCode(args[0]));
+                break;
+            default:
+                executor = route.executor;
+        }
+        executor.execute(task);
+    }
+
+    /**
+     * 关闭所有执行器, 已提交的请求会执行完成
+     */
+    public void shutdown() {
+        sharedExecutor.shutdown();
+        for (Route route : serviceRoutes.values()) {
+            if (route.executor instanceof ExecutorService) {
+                ((ExecutorService) route.executor).shutdown();
+            }
+        }
+        ExecutorService[] current = lanes;
+        if (current != null) {
+            for (ExecutorService lane : current) {
+                lane.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 解析执行顺序配置
+     *
+     * @param ordering none, channel 或 key, 为空时等同于 none
+     * @return 规范化后的执行顺序
+     */
+    public static String parseOrdering(String ordering) {
+        String name = ordering == null || ordering.trim().isEmpty() ? ORDERING_NONE
+                : ordering.trim().toLowerCase(Locale.ROOT);
+        switch (name) {
+            case ORDERING_NONE:
+            case ORDERING_CHANNEL:
+            case ORDERING_KEY:
+                return name;
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "Unsupported ordering [%s], expect none, channel or key.", ordering));
+        }
+    }
+
+    /**
+     * 是否缓存了该服务的执行方式, 包内可见, 供测试使用
+     */
+    boolean hasRoute(String serviceName) {
+        return serviceRoutes.containsKey(serviceName);
+    }
+
+    /**
+     * 查找服务的执行方式; 服务名称来自客户端, 未导出的服务使用默认方式且不缓存, 避免缓存随请求无限增长
+     */
+    private Route route(String serviceName) {
+        if (serviceName == null) {
+            return defaultRoute;
+        }
+        Route route = serviceRoutes.get(serviceName);
+        if (route != null) {
+            return route;
+        }
+        if (LocalServiceCache.getService(serviceName) == null) {
+            return defaultRoute;
+        }
+        return serviceRoutes.computeIfAbsent(serviceName, this::resolveRoute);
+    }
+
+    /**
+     * 根据服务实现类上的 {@link RpcService} 注解决定执行顺序, 以及使用独立执行器还是共享执行器
+     */
+    private Route resolveRoute(String serviceName) {
+        Object service = LocalServiceCache.getService(serviceName);
+        RpcService rpcService = service == null ? null : service.getClass().getAnnotation(RpcService.class);
+        if (rpcService == null) {
+            return defaultRoute;
+        }
+        String ordering = defaultRoute.ordering;
+        if (!rpcService.ordering().isEmpty()) {
+            try {
+                ordering = parseOrdering(rpcService.ordering());
+            } catch (IllegalArgumentException e) {
+                log.warn("The ordering of service [{}] is illegal, use [{}] instead.", serviceName, ordering, e);
+            }
+        }
+        if (!ORDERING_NONE.equals(ordering) || rpcService.executorThreads() <= 0) {
+            return ordering.equals(defaultRoute.ordering) ? defaultRoute : new Route(ordering, sharedDispatch);
+        }
+        log.info("The service [{}] uses an isolated executor, threads: {}, queue size: {}.", serviceName,
+                rpcService.executorThreads(), rpcService.executorQueueSize());
+        if (virtual) {
+            // 虚拟线程无需单独的线程池, 只需独立的并发上限
+            return new Route(ordering, new LimitedExecutor(sharedExecutor, rpcService.executorThreads()));
+        }
+        return new Route(ordering, createExecutor(rpcService.executorThreads(), rpcService.executorQueueSize()));
+    }
+
+    /**
+     * 按哈希值选择 lane
+     */
+    private Executor lane(int hash) {
+        ExecutorService[] current = lanes;
+        if (current == null) {
+            synchronized (this) {
+                current = lanes;
+                if (current == null) {
+                    current = new ExecutorService[laneCount];
+                    for (int i = 0; i < laneCount; i++) {
+                        current[i] = createExecutor(1, laneQueueSize);
+                    }
+                    lanes = current;
+                }
+            }
+        }
+        int h = hash ^ (hash >>> 16);
+        return current[(h & Integer.MAX_VALUE) % current.length];
+    }
+
+    private static ExecutorService createExecutor(int threads, int queueSize) {
+        int size = Math.max(1, threads);
+        return ThreadPoolFactory.createCustomThreadPool(new ThreadPoolConfig(60L, size, size, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize))));
+    }
+
+    /**
+     * 服务的执行方式: 执行顺序与不要求顺序时使用的执行器
+     */
+    private static class Route {
+
+        private final String ordering;
+
+        private final Executor executor;
+
+        Route(String ordering, Executor executor) {
+            this.ordering = ordering;
+            this.executor = executor;
+        }
+    }
+
+    /**
+     * 限制同时执行的任务数, 达到上限时拒绝新任务
+     */
+    private static class LimitedExecutor implements Executor {
+
+        private final Executor delegate;
+
+        private final Semaphore permits;
+
+        LimitedExecutor(Executor delegate, int limit) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(Math.max(1, limit));
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (!permits.tryAcquire()) {
+                throw new RejectedExecutionException("Too many concurrent requests.");
+            }
+            try {
+                delegate.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                throw e;
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.lj.rpc.server.handler;
 
+import com.lj.rpc.core.codec.InvocationTable;
+import com.lj.rpc.core.entity.MethodDescriptor;
 import com.lj.rpc.core.entity.RpcRequest;
 import com.lj.rpc.core.entity.RpcResponse;
 import com.lj.rpc.core.constant.ProtocolConstants;
@@ -7,22 +9,23 @@ import com.lj.rpc.core.enums.MessageStatus;
 import com.lj.rpc.core.enums.MessageType;
 import com.lj.rpc.core.exception.RpcException;
 import com.lj.rpc.core.factory.RateLimiterFactory;
-import com.lj.rpc.core.factory.ThreadPoolFactory;
 import com.lj.rpc.core.protocol.MessageHeader;
 import com.lj.rpc.core.protocol.RpcMessage;
 import com.lj.rpc.core.ratelimit.RateLimit;
 import com.lj.rpc.server.cache.LocalServiceCache;
+import com.lj.rpc.server.dispatcher.RequestDispatcher;
+import com.lj.rpc.server.invoker.MethodInvoker;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
-import io.netty.util.ReferenceCountUtil;
 import lombok.extern.slf4j.Slf4j;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Rpc 请求消息处理器
@@ -37,89 +40,171 @@ import java.util.concurrent.ThreadPoolExecutor;
 @Slf4j
 public class RpcRequestHandler extends SimpleChannelInboundHandler<RpcMessage> {
 
-    private final ThreadPoolExecutor threadPool;
+    private final RequestDispatcher dispatcher;
 
     private final RateLimiterFactory rateLimiterFactory;
 
-    public RpcRequestHandler() {
-        // 使用定义好的线程工厂类来创建线程池
-        threadPool = ThreadPoolFactory.createDefaultThreadPool();
+    public RpcRequestHandler(RequestDispatcher dispatcher) {
+        // 所有连接共享同一个请求分发器, 不再为每个连接创建线程池
+        this.dispatcher = dispatcher;
         rateLimiterFactory = new RateLimiterFactory(100, 10, 1000);
     }
 
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, RpcMessage msg) {
-        threadPool.submit(() -> {
+        MessageHeader header = msg.getMessageHeader();
+        MessageType messageType = MessageType.parseType(header.getMessageType());
+        log.debug("The message received by the server is: {}", msg.getBody());
+        // 处理 RPC 请求: 非阻塞方法直接在 EventLoop 中执行, 其余提交到业务线程池执行
+        if (messageType == MessageType.REQUEST) {
+            RpcRequest request = (RpcRequest) msg.getBody();
+            if (request.getDecodeError() != null) {
+                // 请求无法解码 (如参数类型无法加载), 立即返回失败响应, 客户端无需等到超时
+                log.warn(request.getDecodeError());
+                writeFailure(ctx, header, request.getDecodeError());
+                return;
+            }
+            int methodId = request.getMethodId() >= 0 ? request.getMethodId()
+                    : LocalServiceCache.getMethodId(new MethodDescriptor(request.getServiceName(),
+                    request.getMethod(), request.getParameterTypes()));
+            if (LocalServiceCache.isNonBlocking(methodId)) {
+                handleRequest(ctx, header, request, methodId);
+                return;
+            }
             try {
-                RpcMessage response = new RpcMessage();
-                MessageHeader header = msg.getMessageHeader();
-                MessageType messageType = MessageType.parseType(header.getMessageType());
-                log.debug("The message received by the server is: {}", msg.getBody());
-                // 处理 RPC 请求
-                if (messageType == MessageType.REQUEST) {
-                    // 处理 RPC 请求之前进行限流判断
-                    RpcRequest request = (RpcRequest) msg.getBody();
-                    String serviceName = request.getServiceName();
-                    RpcResponse rpcResponse = new RpcResponse();
-
-                    // RateLimit rateLimiter = rateLimiterFactory.getRateLimiter(serviceName);
-                    // NOTE: 触发限流, 快速返回
-                    // if (!rateLimiter.isRelease()) {
-                    //     rpcResponse.setExceptionValue(new RpcException("rate limit!"));
-                    //     header.setMessageStatus(MessageStatus.FAIL.getStatus());
-                    //     response.setMessageHeader(header);
-                    //     ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
-                    // }
-                    header.setMessageType(MessageType.RESPONSE.getType());
-                    // 反射调用
-                    try {
-                        // 获取本地反射调用结果
-                        Object result = getRequest(request);
-                        rpcResponse.setReturnValue(result);
-                        header.setMessageStatus(MessageStatus.SUCCESS.getStatus());
-                    } catch (Exception e) {
-                        log.error("The service [{}], the method [{}] invoke failed!",
-                                request.getServiceName(), request.getMethod());
-                        // 若不设置，堆栈信息过多，导致报错
-                        rpcResponse.setExceptionValue(
-                                new RpcException("Error in remote procedure call, " + e.getMessage()));
-                        header.setMessageStatus(MessageStatus.FAIL.getStatus());
+                dispatcher.dispatch(ctx.channel(), request, () -> handleRequest(ctx, header, request, methodId));
+            } catch (RejectedExecutionException e) {
+                // 线程池已饱和, 立即返回失败响应, 客户端无需等到超时
+                log.warn("The server is busy, reject the request of service [{}], method [{}].",
+                        request.getServiceName(), request.getMethod());
+                writeFailure(ctx, header, String.format(
+                        "The server is busy, the request of service [%s] is rejected.", request.getServiceName()));
+            }
+            return;
+        }
+        // 握手与心跳请求开销很小, 直接在 EventLoop 中处理, 业务线程池饱和时也能及时响应
+        if (messageType == MessageType.HANDSHAKE_REQUEST) {   // 如果是握手请求
+            // 下发当前导出的方法表, 并记录在连接上, 之后按全局编号解码请求
+            MethodDescriptor[] descriptors = LocalServiceCache.getMethodDescriptors();
+            InvocationTable.get(ctx.channel()).setExported(descriptors);
+            header.setMessageType(MessageType.HANDSHAKE_RESPONSE.getType());
+            header.setMessageStatus(MessageStatus.SUCCESS.getStatus());
+            writeResponse(ctx, header, descriptors);
+        } else if (messageType == MessageType.HEARTBEAT_REQUEST) {    // 如果是心跳检测请求
+            header.setMessageType(MessageType.HEARTBEAT_RESPONSE.getType());
+            header.setMessageStatus(MessageStatus.SUCCESS.getStatus());
+            writeResponse(ctx, header, ProtocolConstants.HEARTBEAT_RESPONSE);
+        }
+    }
+
+    /**
+     * 调用服务方法并写回响应, 在业务线程池或 EventLoop (非阻塞方法) 中执行
+     */
+    private void handleRequest(ChannelHandlerContext ctx, MessageHeader header, RpcRequest request, int methodId) {
+        RpcResponse rpcResponse = new RpcResponse();
+
+        // RateLimit rateLimiter = rateLimiterFactory.getRateLimiter(request.getServiceName());
+        // NOTE: 触发限流, 快速返回
+        // if (!rateLimiter.isRelease()) {
+        //     rpcResponse.setExceptionValue(new RpcException("rate limit!"));
+        //     header.setMessageStatus(MessageStatus.FAIL.getStatus());
+        //     response.setMessageHeader(header);
+        //     ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+        // }
+        header.setMessageType(MessageType.RESPONSE.getType());
+        // 通过预先生成的调用器调用
+        try {
+            // 获取本地调用结果
+            Object result = getRequest(request, methodId);
+            if (result instanceof CompletionStage) {
+                // 异步方法: 在 future 完成时再写回响应, 不占用当前线程等待
+                ((CompletionStage<?>) result).whenComplete((value, cause) -> {
+                    if (cause == null) {
+                        setSuccess(header, rpcResponse, value);
+                    } else {
+                        setFailure(header, rpcResponse, request,
+                                cause instanceof CompletionException && cause.getCause() != null
+                                        ? cause.getCause() : cause);
                     }
-                    response.setMessageHeader(header);
-                    response.setBody(rpcResponse);
-                } else if (messageType == MessageType.HEARTBEAT_REQUEST) {    // 如果是心跳检测请求
-                    header.setMessageType(MessageType.HEARTBEAT_RESPONSE.getType());
-                    header.setMessageStatus(MessageStatus.SUCCESS.getStatus());
-                    response.setMessageHeader(header);
-                    response.setBody(ProtocolConstants.HEARTBEAT_RESPONSE);
-                }
-                log.debug("responseRpcMessage: {}.", response);
-                // 将结果进行传递
-                ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
-            } finally {
-                // 确保 ByteBuf 被释放，防止发生内存泄露
-                ReferenceCountUtil.release(msg);
+                    writeResult(ctx, header, rpcResponse);
+                });
+                return;
+            }
+            setSuccess(header, rpcResponse, result);
+        } catch (Exception e) {
+            setFailure(header, rpcResponse, request, e);
+        }
+        writeResult(ctx, header, rpcResponse);
+    }
+
+    /**
+     * 写回调用结果; 结果无法编码 (如超过最大消息长度) 时改为写回失败响应, 客户端无需等到超时, 连接仍可继续使用
+     */
+    private void writeResult(ChannelHandlerContext ctx, MessageHeader header, RpcResponse rpcResponse) {
+        ctx.writeAndFlush(message(header, rpcResponse)).addListener((ChannelFutureListener) f -> {
+            if (f.cause() instanceof EncoderException) {
+                log.warn("Failed to encode the response of sequence id [{}].", header.getSequenceId(), f.cause());
+                writeFailure(ctx, header, "Failed to encode the response, " + f.cause().getMessage());
+            } else if (!f.isSuccess()) {
+                f.channel().close();
             }
         });
     }
 
     /**
-     * 通过反射调用 RpcRequest 请求指定的方法
+     * 不调用服务方法, 直接写回失败响应
+     */
+    private void writeFailure(ChannelHandlerContext ctx, MessageHeader header, String message) {
+        RpcResponse rpcResponse = new RpcResponse();
+        rpcResponse.setExceptionValue(new RpcException(message));
+        header.setMessageType(MessageType.RESPONSE.getType());
+        header.setMessageStatus(MessageStatus.FAIL.getStatus());
+        writeResponse(ctx, header, rpcResponse);
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, MessageHeader header, Object body) {
+        // 将结果进行传递
+        ctx.writeAndFlush(message(header, body)).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
+    private RpcMessage message(MessageHeader header, Object body) {
+        RpcMessage response = new RpcMessage();
+        response.setMessageHeader(header);
+        response.setBody(body);
+        log.debug("responseRpcMessage: {}.", response);
+        return response;
+    }
+
+    private void setSuccess(MessageHeader header, RpcResponse rpcResponse, Object result) {
+        rpcResponse.setReturnValue(result);
+        header.setMessageStatus(MessageStatus.SUCCESS.getStatus());
+    }
+
+    private void setFailure(MessageHeader header, RpcResponse rpcResponse, RpcRequest request, Throwable e) {
+        log.error("The service [{}], the method [{}] invoke failed!",
+                request.getServiceName(), request.getMethod());
+        // 若不设置，堆栈信息过多，导致报错
+        rpcResponse.setExceptionValue(
+                new RpcException("Error in remote procedure call, " + e.getMessage()));
+        header.setMessageStatus(MessageStatus.FAIL.getStatus());
+    }
+
+    /**
+     * 调用 RpcRequest 请求指定的方法
+     *
+     * <p>按全局方法编号直接取出预先解析好的调用器; 未携带编号的请求已在分发前按方法描述查出编号
      *
-     * @param request RPC 请求
+     * @param request  RPC 请求
+     * @param methodId 全局方法编号, 方法不存在时为 -1
      * @return 调用结果
      */
-    private Object getRequest(RpcRequest request)
-            throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
-        String serviceName = request.getServiceName();
-        // 根据 serviceName 去注册中心(本地缓存)拿
-        Object service = LocalServiceCache.getService(serviceName);
-        if (service == null) {
-            log.error("The service [{}] is not exist!", request.getServiceName());
+    private Object getRequest(RpcRequest request, int methodId) throws Exception {
+        MethodInvoker invoker = LocalServiceCache.getInvoker(methodId);
+        if (invoker == null) {
+            log.error("The service [{}], the method [{}] is not exist!", request.getServiceName(), request.getMethod());
             throw new RpcException(String.format("The service [%s] is not exist!", request.getServiceName()));
         }
-        Method method = service.getClass().getMethod(request.getMethod(), request.getParameterTypes());
-        return method.invoke(service, request.getParameterValues());
+        return invoker.invoke(request.getParameterValues());
     }
 
     /**
@@ -0,0 +1,129 @@
+package com.lj.rpc.server.invoker;
+
+import com.lj.rpc.core.entity.MethodDescriptor;
+import lombok.Getter;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 基于 {@link LambdaMetafactory} 生成的调用器
+ *
+ * <p>
+ * 为每个方法生成一个绑定了服务实例的函数对象, 其内部直接以字节码调用目标方法,
+ * 参数的类型转换与拆装箱也由生成的代码完成, JIT 可以像普通调用一样将其内联。
+ * 仅支持 public 类型上的 public 方法, 且参数个数不超过 {@link #MAX_ARITY}、返回值不为 void,
+ * 其余情况由 {@link MethodInvokerFactory} 回退到其他实现
+ * </p>
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/7/25 14:05
+ */
+@Getter
+public class LambdaMethodInvoker implements MethodInvoker {
+
+    /**
+     * 支持的最大参数个数
+     */
+    public static final int MAX_ARITY = 4;
+
+    private static final Class<?>[] CALL_TYPES = {Call0.class, Call1.class, Call2.class, Call3.class, Call4.class};
+
+    private final MethodDescriptor descriptor;
+
+    private final int arity;
+
+    private final Object call;
+
+    public LambdaMethodInvoker(MethodDescriptor descriptor, Object service, Method method) throws Exception {
+        if (!isSupported(method)) {
+            throw new IllegalArgumentException("Unsupported method for lambda invoker: " + method);
+        }
+        this.descriptor = descriptor;
+        this.arity = method.getParameterCount();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle impl = lookup.unreflect(method);
+        Class<?> callType = CALL_TYPES[arity];
+        // 擦除后的函数签名为 (Object...)Object, 生成的代码负责向实际参数类型转换
+        MethodType instantiated = MethodType.methodType(method.getReturnType(), method.getParameterTypes()).wrap();
+        CallSite site = LambdaMetafactory.metafactory(lookup, "call",
+                MethodType.methodType(callType, method.getDeclaringClass()),
+                MethodType.genericMethodType(arity), impl, instantiated);
+        try {
+            this.call = site.getTarget().invoke(service);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * 判断方法是否可以由本实现调用
+     *
+     * @param method 目标方法
+     * @return 是否支持
+     */
+    public static boolean isSupported(Method method) {
+        return Modifier.isPublic(method.getModifiers())
+                && Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                && !Modifier.isStatic(method.getModifiers())
+                && method.getReturnType() != void.class
+                && method.getParameterCount() <= MAX_ARITY;
+    }
+
+    @Override
+    public Object invoke(Object[] args) throws Exception {
+        if ((args == null ? 0 : args.length) != arity) {
+            throw new IllegalArgumentException(String.format("Wrong number of arguments, expect %d.", arity));
+        }
+        try {
+            switch (arity) {
+                case 0:
+                    return ((Call0) call).call();
+                case 1:
+                    return ((Call1) call).call(args[0]);
+                case 2:
+                    return ((Call2) call).call(args[0], args[1]);
+                case 3:
+                    return ((Call3) call).call(args[0], args[1], args[2]);
+                default:
+                    return ((Call4) call).call(args[0], args[1], args[2], args[3]);
+            }
+        } catch (Error e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Call0 {
+        Object call() throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Call1 {
+        Object call(Object a0) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Call2 {
+        Object call(Object a0, Object a1) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Call3 {
+        Object call(Object a0, Object a1, Object a2) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Call4 {
+        Object call(Object a0, Object a1, Object a2, Object a3) throws Exception;
+    }
+}
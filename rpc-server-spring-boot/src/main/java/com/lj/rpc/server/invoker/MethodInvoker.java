@@ -0,0 +1,34 @@
+package com.lj.rpc.server.invoker;
+
+import com.lj.rpc.core.entity.MethodDescriptor;
+
+/**
+ * 服务方法调用器
+ *
+ * <p>
+ * 服务注册时即为每个方法生成调用器, 请求处理时直接调用, 不再按方法名与参数类型反射查找;
+ * 具体实现由 {@link MethodInvokerFactory} 选择
+ * </p>
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/7/24 15:10
+ */
+public interface MethodInvoker {
+
+    /**
+     * 获取被调用方法的描述
+     *
+     * @return 方法描述
+     */
+    MethodDescriptor getDescriptor();
+
+    /**
+     * 调用目标方法, 目标方法抛出的 Exception 原样抛出, Error 包装为 InvocationTargetException
+     *
+     * @param args 参数
+     * @return 调用结果
+     * @throws Exception 目标方法抛出的异常
+     */
+    Object invoke(Object[] args) throws Exception;
+}
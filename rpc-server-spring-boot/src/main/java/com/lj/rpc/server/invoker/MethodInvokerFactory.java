@@ -0,0 +1,50 @@
+package com.lj.rpc.server.invoker;
+
+import com.lj.rpc.core.entity.MethodDescriptor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+
+/**
+ * 方法调用器工厂
+ *
+ * <p>
+ * 依次尝试 {@link LambdaMethodInvoker}、{@link MethodHandleInvoker}, 都无法生成时回退到 {@link ReflectiveMethodInvoker}
+ * </p>
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/7/25 10:32
+ */
+@Slf4j
+public class MethodInvokerFactory {
+
+    private MethodInvokerFactory() {
+
+    }
+
+    /**
+     * 为服务实例上的方法创建调用器
+     *
+     * @param descriptor 方法描述
+     * @param service    服务实例
+     * @param method     服务实例上的目标方法
+     * @return 调用器
+     */
+    public static MethodInvoker create(MethodDescriptor descriptor, Object service, Method method) {
+        if (LambdaMethodInvoker.isSupported(method)) {
+            try {
+                return new LambdaMethodInvoker(descriptor, service, method);
+            } catch (Exception | LinkageError e) {
+                log.debug("Cannot generate lambda invoker for {}: {}", method, e.getMessage());
+            }
+        }
+        try {
+            return new MethodHandleInvoker(descriptor, service, method);
+        } catch (IllegalAccessException | RuntimeException e) {
+            // 例如无法访问的方法, 或参数个数超出 MethodHandle 的限制
+            log.warn("Fall back to reflective invoker for {}: {}", method, e.getMessage());
+            return new ReflectiveMethodInvoker(descriptor, service, method);
+        }
+    }
+}
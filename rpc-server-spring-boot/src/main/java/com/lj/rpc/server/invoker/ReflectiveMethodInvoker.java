@@ -0,0 +1,45 @@
+package com.lj.rpc.server.invoker;
+
+import com.lj.rpc.core.entity.MethodDescriptor;
+import lombok.Getter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * 基于 {@link Method#invoke(Object, Object...)} 的调用器, 作为无法生成 MethodHandle 时的回退实现
+ *
+ * @author liujue
+ * @version 1.0
+ * @date 2024/7/24 15:10
+ */
+@Getter
+public class ReflectiveMethodInvoker implements MethodInvoker {
+
+    private final MethodDescriptor descriptor;
+
+    private final Object service;
+
+    private final Method method;
+
+    public ReflectiveMethodInvoker(MethodDescriptor descriptor, Object service, Method method) {
+        this.descriptor = descriptor;
+        this.service = service;
+        this.method = method;
+        // 服务实现类可能不是 public 的, 提前关闭访问检查
+        method.setAccessible(true);
+    }
+
+    @Override
+    public Object invoke(Object[] args) throws Exception {
+        try {
+            return method.invoke(service, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -7,9 +7,9 @@ import com.lj.rpc.server.annotation.RpcService;
 import com.lj.rpc.server.cache.LocalServiceCache;
 import com.lj.rpc.server.config.RpcServerProperties;
 import com.lj.rpc.server.transport.RpcServer;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.CommandLineRunner;
 
@@ -62,7 +62,6 @@ public class RpcServerBeanPostProcessor implements BeanPostProcessor, CommandLin
      * @return 返回增强后的 bean
      * @throws BeansException Bean 异常
      */
-    @SneakyThrows
     @Override
     public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
         // 判断当前 Bean 是否被 @RpcService 注解标注
@@ -71,10 +70,21 @@ public class RpcServerBeanPostProcessor implements BeanPostProcessor, CommandLin
             // 获取到该类的 @RpcService 注解
             RpcService rpcService = bean.getClass().getAnnotation(RpcService.class);
             String interfaceName;
+            Class<?> exportedType;
             if ("".equals(rpcService.interfaceName())) {
                 interfaceName = rpcService.interfaceClass().getName();
+                exportedType = rpcService.interfaceClass();
             } else {
                 interfaceName = rpcService.interfaceName();
+                try {
+                    exportedType = ServiceUtils.forName(interfaceName);
+                } catch (ClassNotFoundException e) {
+                    throw new BeanCreationException(beanName,
+                            "The interfaceName [" + interfaceName + "] of @RpcService cannot be loaded.", e);
+                }
+            }
+            if (exportedType == void.class) {
+                exportedType = bean.getClass();
             }
             String version = rpcService.version();
             String serviceName = ServiceUtils.getServiceName(interfaceName, version);
@@ -89,9 +99,13 @@ public class RpcServerBeanPostProcessor implements BeanPostProcessor, CommandLin
                     .isIdempotent(true)
                     .build();
             // 进行远程服务注册
-            serviceRegistry.register(serviceMessage);
-            // 进行本地服务缓存注册
-            LocalServiceCache.addService(serviceName, bean);
+            try {
+                serviceRegistry.register(serviceMessage);
+            } catch (Exception e) {
+                throw new BeanCreationException(beanName, "Failed to register the service [" + serviceName + "].", e);
+            }
+            // 进行本地服务缓存注册, 同时为服务方法分配全局编号
+            LocalServiceCache.addService(serviceName, bean, exportedType);
         }
         return bean;
     }
@@ -2,16 +2,20 @@ package com.lj.rpc.server.transport.netty;
 
 import com.lj.rpc.core.codec.RpcFrameDecoder;
 import com.lj.rpc.core.codec.SharableRpcMessageCodec;
+import com.lj.rpc.core.factory.CompressorFactory;
+import com.lj.rpc.core.factory.NettyEventLoopFactory;
+import com.lj.rpc.server.config.RpcServerProperties;
+import com.lj.rpc.server.dispatcher.RequestDispatcher;
 import com.lj.rpc.server.handler.RpcRequestHandler;
 import com.lj.rpc.server.transport.RpcServer;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.timeout.IdleStateHandler;
@@ -19,6 +23,8 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -31,47 +37,112 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class NettyRpcServer implements RpcServer {
 
+    /**
+     * 服务端配置
+     */
+    private final RpcServerProperties properties;
+
+    /**
+     * 已绑定的监听 socket, 启动完成前为 null
+     */
+    private volatile List<Channel> serverChannels;
+
+    public NettyRpcServer() throws UnknownHostException {
+        this(new RpcServerProperties());
+    }
+
+    public NettyRpcServer(RpcServerProperties properties) {
+        this.properties = properties;
+    }
+
     @Override
     public void start(Integer port) {
-        // boss 处理 ServerSocketChannel 上的 accept 事件
-        EventLoopGroup boss = new NioEventLoopGroup();
+        // 所有连接共享的请求分发器
+        RequestDispatcher dispatcher = new RequestDispatcher(properties);
+        // 根据配置选择 epoll 或 nio
+        boolean epoll = NettyEventLoopFactory.useEpoll(properties.getTransport());
+        int flushConsolidationLimit = properties.getFlushConsolidationLimit();
+        // 编解码器可共享, 所有连接使用同一个实例
+        SharableRpcMessageCodec codec = new SharableRpcMessageCodec(properties.getChunkSize(),
+                properties.getMaxMessageLength(), CompressorFactory.getType(properties.getCompress()),
+                properties.getCompressThreshold());
+        // 多个监听 socket 依赖 SO_REUSEPORT, 只有 epoll 支持
+        int acceptors = Math.max(1, properties.getAcceptors());
+        if (acceptors > 1 && !epoll) {
+            log.warn("Multiple acceptors require the epoll transport, fall back to a single acceptor.");
+            acceptors = 1;
+        }
+        int bossThreads = properties.getBossThreads() > 0 ? properties.getBossThreads() : acceptors;
+        // boss 处理 ServerSocketChannel 上的 accept 事件, 每个监听 socket 注册到不同的 boss 线程
+        EventLoopGroup boss = NettyEventLoopFactory.eventLoopGroup(epoll, bossThreads, "rpc-server-boss");
         // worker 负责 SocketChannel 上的 read/write 事件
-        EventLoopGroup worker = new NioEventLoopGroup();
+        EventLoopGroup worker = NettyEventLoopFactory.eventLoopGroup(epoll, properties.getWorkerThreads(),
+                "rpc-server-worker", properties.getWorkerAffinity());
         try {
             InetAddress inetAddress = InetAddress.getLocalHost();
             ServerBootstrap serverBootstrap = new ServerBootstrap();
+            NettyEventLoopFactory.configure(serverBootstrap, epoll);
+            if (acceptors > 1) {
+                // 多个监听 socket 绑定同一端口; 只有一个时不开启, 端口被占用时仍能及时报错
+                serverBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
             serverBootstrap.group(boss, worker)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(NettyEventLoopFactory.serverSocketChannelClass(epoll))
                     // TCP 默认开启了 Nagle 算法，该算法的作用是尽可能的发送大数据快，减少网络传输。TCP_NODELAY 参数的作用就是控制是否启用 Nagle 算法。
                     .childOption(ChannelOption.TCP_NODELAY, true)
                     // 是否开启 TCP 底层心跳机制
                     .childOption(ChannelOption.SO_KEEPALIVE, true)
                     // 表示系统用于临时存放已完成三次握手的请求的队列的最大长度,如果连接建立频繁，服务器处理创建新连接较慢，可以适当调大这个参数
-                    .option(ChannelOption.SO_BACKLOG, 128)
+                    .option(ChannelOption.SO_BACKLOG, properties.getBacklog())
                     .handler(new LoggingHandler(LogLevel.DEBUG))
                     .childHandler(new ChannelInitializer<SocketChannel>() {
                         @Override
                         protected void initChannel(SocketChannel ch) {
+                            // 0. 开启时添加 FlushConsolidationHandler, 业务线程池中先后完成的响应合并为一次 flush
+                            if (flushConsolidationLimit > 0) {
+                                ch.pipeline().addLast(new FlushConsolidationHandler(flushConsolidationLimit, true));
+                            }
                             // 1. 添加 IdleStateHandler 解决连接假死问题
                             // 30s 内没有收到客户端发送的信息, 会触发一个 IdleState#READER_IDLE 事件
                             ch.pipeline().addLast(new IdleStateHandler(30, 0, 0, TimeUnit.SECONDS));
                             // 2. 添加 RpcFrameDecoder 解决黏包半包问题
-                            ch.pipeline().addLast(new RpcFrameDecoder());
+                            ch.pipeline().addLast(new RpcFrameDecoder(properties.getMaxFrameLength()));
                             // 3. 添加 SharableRpcMessageCodec 对自定义协议进行编解码
-                            ch.pipeline().addLast(new SharableRpcMessageCodec());
+                            ch.pipeline().addLast(codec);
                             // 4. 添加 RpcRequestHandler 处理客户端发送的请求消息
-                            ch.pipeline().addLast(new RpcRequestHandler());
+                            ch.pipeline().addLast(new RpcRequestHandler(dispatcher));
                         }
                     });
-            ChannelFuture channelFuture = serverBootstrap.bind(inetAddress, port).sync();
-            log.debug("Rpc server add {} started on the port {}.", inetAddress, port);
-            channelFuture.channel().closeFuture().sync();
+            List<Channel> channels = new ArrayList<>(acceptors);
+            for (int i = 0; i < acceptors; i++) {
+                channels.add(serverBootstrap.bind(inetAddress, port).sync().channel());
+            }
+            serverChannels = channels;
+            log.debug("Rpc server add {} started on the port {}, transport: {}, acceptors: {}.", inetAddress, port,
+                    epoll ? "epoll" : "nio", acceptors);
+            for (Channel channel : channels) {
+                channel.closeFuture().sync();
+            }
         } catch (UnknownHostException | InterruptedException e) {
             Thread.currentThread().interrupt();
             log.error("An error occurred while starting the rpc service.", e);
         } finally {
             boss.shutdownGracefully();
             worker.shutdownGracefully();
+            dispatcher.shutdown();
+        }
+    }
+
+    /**
+     * 停止服务: 关闭全部监听 socket, {@link #start(Integer)} 随后释放事件循环组与业务线程池并返回;
+     * 服务尚未启动完成时不做任何操作
+     */
+    public void stop() {
+        List<Channel> channels = serverChannels;
+        if (channels != null) {
+            for (Channel channel : channels) {
+                channel.close().syncUninterruptibly();
+            }
         }
     }
 }
@@ -0,0 +1,249 @@
+package com.lj.rpc.server.dispatcher;
+
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.factory.ThreadPoolFactory;
+import com.lj.rpc.server.annotation.RpcService;
+import com.lj.rpc.server.cache.LocalServiceCache;
+import com.lj.rpc.server.config.RpcServerProperties;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求分发器测试类
+ *
+ * @author liujue
+ */
+public class RequestDispatcherTest {
+
+    private static final String ISOLATED_SERVICE = "com.lj.rpc.server.dispatcher.IsolatedService1.0";
+
+    private RequestDispatcher dispatcher;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testChannelOrdering() throws Exception {
+        dispatcher = new RequestDispatcher(properties("channel", 4, 1024));
+        Channel[] channels = {new EmbeddedChannel(), new EmbeddedChannel(), new EmbeddedChannel()};
+        List<List<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < channels.length; i++) {
+            results.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        int count = 300;
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            int index = i % channels.length;
+            int sequence = i;
+            dispatcher.dispatch(channels[index], request(null, null), () -> {
+                results.get(index).add(sequence);
+                done.countDown();
+            });
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> result : results) {
+            assertAscending(result);
+        }
+    }
+
+    @Test
+    public void testKeyOrdering() throws Exception {
+        dispatcher = new RequestDispatcher(properties("key", 4, 1024));
+        String[] keys = {"a", "b", "c", "d", "e"};
+        List<List<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            results.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        // 同一个 key 的请求来自不同连接, 仍按到达顺序执行
+        Channel[] channels = {new EmbeddedChannel(), new EmbeddedChannel()};
+        int count = 300;
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            int index = i % keys.length;
+            int sequence = i;
+            dispatcher.dispatch(channels[i % channels.length], request(null, keys[index]), () -> {
+                results.get(index).add(sequence);
+                done.countDown();
+            });
+        }
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> result : results) {
+            assertAscending(result);
+        }
+    }
+
+    @Test
+    public void testLaneFull() throws Exception {
+        dispatcher = new RequestDispatcher(properties("channel", 1, 1));
+        Channel channel = new EmbeddedChannel();
+        CountDownLatch started = new CountDownLatch(1);
+        dispatcher.dispatch(channel, request(null, null), block(started));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        // 唯一的 lane 正在执行第一个请求, 第二个请求进入队列, 第三个请求被拒绝
+        dispatcher.dispatch(channel, request(null, null), () -> {
+        });
+        assertRejected(channel, request(null, null));
+    }
+
+    @Test
+    public void testPoolFull() throws Exception {
+        RpcServerProperties properties = properties("none", 1, 1);
+        properties.setExecutorThreads(1);
+        dispatcher = new RequestDispatcher(properties);
+        Channel channel = new EmbeddedChannel();
+        CountDownLatch started = new CountDownLatch(1);
+        dispatcher.dispatch(channel, request(null, null), block(started));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(channel, request(null, null), () -> {
+        });
+        assertRejected(channel, request(null, null));
+    }
+
+    @Test
+    public void testIsolatedExecutor() throws Exception {
+        LocalServiceCache.addService(ISOLATED_SERVICE, new IsolatedService());
+        RpcServerProperties properties = properties("none", 1, 1);
+        properties.setExecutorThreads(1);
+        dispatcher = new RequestDispatcher(properties);
+        Channel channel = new EmbeddedChannel();
+
+        // 占满独立线程池: 一个请求执行中, 一个请求在队列中
+        CountDownLatch started = new CountDownLatch(1);
+        dispatcher.dispatch(channel, request(ISOLATED_SERVICE, null), block(started));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(channel, request(ISOLATED_SERVICE, null), () -> {
+        });
+        assertRejected(channel, request(ISOLATED_SERVICE, null));
+
+        // 独立线程池饱和时, 其他服务仍在共享线程池中执行
+        CountDownLatch shared = new CountDownLatch(1);
+        dispatcher.dispatch(channel, request(null, null), shared::countDown);
+        Assert.assertTrue(shared.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUnknownServiceNotCached() throws Exception {
+        LocalServiceCache.addService(ISOLATED_SERVICE, new IsolatedService());
+        dispatcher = new RequestDispatcher(properties("none", 1, 1024));
+        Channel channel = new EmbeddedChannel();
+        int count = 100;
+        CountDownLatch done = new CountDownLatch(count + 1);
+        // 客户端发送的未知服务名称不会留在缓存中
+        for (int i = 0; i < count; i++) {
+            dispatcher.dispatch(channel, request("unknown-" + i, null), done::countDown);
+            Assert.assertFalse(dispatcher.hasRoute("unknown-" + i));
+        }
+        dispatcher.dispatch(channel, request(ISOLATED_SERVICE, null), done::countDown);
+        Assert.assertTrue(dispatcher.hasRoute(ISOLATED_SERVICE));
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        Assume.assumeTrue(ThreadPoolFactory.isVirtualThreadSupported());
+        RpcServerProperties properties = properties("none", 1, 1);
+        properties.setExecutorMode("virtual");
+        properties.setVirtualThreadLimit(2);
+        dispatcher = new RequestDispatcher(properties);
+        Channel channel = new EmbeddedChannel();
+        CompletableFuture<String> name = new CompletableFuture<>();
+        dispatcher.dispatch(channel, request(null, null), () -> name.complete(Thread.currentThread().getName()));
+        Assert.assertTrue(name.get(10, TimeUnit.SECONDS).startsWith("rpc-server-virtual-"));
+
+        // 同时执行的请求数达到上限后拒绝, 而不是无限创建虚拟线程
+        CountDownLatch started = new CountDownLatch(2);
+        dispatcher.dispatch(channel, request(null, null), block(started));
+        dispatcher.dispatch(channel, request(null, null), block(started));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertRejected(channel, request(null, null));
+    }
+
+    @Test
+    public void testVirtualThreadsFallback() throws Exception {
+        Assume.assumeTrue(!ThreadPoolFactory.isVirtualThreadSupported());
+        RpcServerProperties properties = properties("none", 1, 1);
+        properties.setExecutorMode("virtual");
+        properties.setExecutorThreads(1);
+        dispatcher = new RequestDispatcher(properties);
+        Channel channel = new EmbeddedChannel();
+        // 不支持虚拟线程时退回线程池, 线程数与队列长度配置仍然生效
+        CountDownLatch started = new CountDownLatch(1);
+        dispatcher.dispatch(channel, request(null, null), block(started));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        dispatcher.dispatch(channel, request(null, null), () -> {
+        });
+        assertRejected(channel, request(null, null));
+    }
+
+    private static RpcServerProperties properties(String ordering, int lanes, int queueSize)
+            throws UnknownHostException {
+        RpcServerProperties properties = new RpcServerProperties();
+        properties.setOrdering(ordering);
+        properties.setOrderedLanes(lanes);
+        properties.setExecutorQueueSize(queueSize);
+        return properties;
+    }
+
+    private static RpcRequest request(String serviceName, Object key) {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName(serviceName);
+        request.setParameterValues(key == null ? new Object[0] : new Object[]{key});
+        return request;
+    }
+
+    private Runnable block(CountDownLatch started) {
+        return () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private void assertRejected(Channel channel, RpcRequest request) {
+        try {
+            dispatcher.dispatch(channel, request, () -> {
+            });
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    private static void assertAscending(List<Integer> result) {
+        Assert.assertFalse(result.isEmpty());
+        for (int i = 1; i < result.size(); i++) {
+            Assert.assertTrue(result.get(i - 1) < result.get(i));
+        }
+    }
+
+    @RpcService(executorThreads = 1, executorQueueSize = 1)
+    public static class IsolatedService {
+
+        public String hello(String name) {
+            return "hello " + name;
+        }
+    }
+}
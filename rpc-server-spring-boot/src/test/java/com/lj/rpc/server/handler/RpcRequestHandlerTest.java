@@ -0,0 +1,203 @@
+package com.lj.rpc.server.handler;
+
+import com.lj.rpc.core.codec.RpcFrameDecoder;
+import com.lj.rpc.core.codec.SharableRpcMessageCodec;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.enums.MessageStatus;
+import com.lj.rpc.core.enums.MessageType;
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.protocol.MessageHeader;
+import com.lj.rpc.core.protocol.RpcMessage;
+import com.lj.rpc.server.annotation.NonBlocking;
+import com.lj.rpc.server.cache.LocalServiceCache;
+import com.lj.rpc.server.config.RpcServerProperties;
+import com.lj.rpc.server.dispatcher.RequestDispatcher;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求处理器测试类
+ *
+ * @author liujue
+ */
+public class RpcRequestHandlerTest {
+
+    private static final String SERVICE_NAME = "com.lj.rpc.server.handler.TestService1.0";
+
+    private RequestDispatcher dispatcher;
+
+    private EmbeddedChannel client;
+
+    private EmbeddedChannel server;
+
+    @Before
+    public void setUp() throws Exception {
+        LocalServiceCache.addService(SERVICE_NAME, new TestService());
+        dispatcher = new RequestDispatcher(new RpcServerProperties());
+        client = new EmbeddedChannel(new RpcFrameDecoder(), new SharableRpcMessageCodec(1024, 10 * 1024));
+        server = new EmbeddedChannel(new RpcFrameDecoder(), new SharableRpcMessageCodec(1024, 10 * 1024),
+                new RpcRequestHandler(dispatcher));
+    }
+
+    @After
+    public void tearDown() {
+        client.finishAndReleaseAll();
+        server.finishAndReleaseAll();
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void testNonBlockingInline() {
+        // 非阻塞方法在 EventLoop (此处为当前线程) 中直接执行, 读事件返回时响应已经写出
+        RpcMessage response = call("threadName", new Class<?>[0], new Object[0]);
+        Assert.assertEquals(Thread.currentThread().getName(), ((RpcResponse) response.getBody()).getReturnValue());
+    }
+
+    @Test
+    public void testBlockingDispatched() throws Exception {
+        // 普通方法提交到业务线程池执行, 读事件返回时尚未写出响应
+        MessageHeader header = send("await", new Class<?>[0], new Object[0]);
+        Assert.assertTrue(server.outboundMessages().isEmpty());
+        TestService.RELEASE.countDown();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (server.outboundMessages().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        RpcMessage response = receive(header);
+        Assert.assertFalse(Thread.currentThread().getName().equals(((RpcResponse) response.getBody()).getReturnValue()));
+    }
+
+    @Test
+    public void testResponseTooLong() {
+        RpcMessage response = call("repeat", new Class<?>[]{int.class}, new Object[]{100 * 1024});
+        // 超过最大消息长度的结果改为失败响应, 客户端无需等到超时
+        Assert.assertEquals(MessageStatus.FAIL.getStatus(), response.getMessageHeader().getMessageStatus());
+        Assert.assertTrue(((RpcResponse) response.getBody()).getExceptionValue().getMessage().contains("exceeds"));
+        // 连接仍可继续使用
+        response = call("repeat", new Class<?>[]{int.class}, new Object[]{10});
+        Assert.assertEquals(MessageStatus.SUCCESS.getStatus(), response.getMessageHeader().getMessageStatus());
+        Assert.assertEquals("xxxxxxxxxx", ((RpcResponse) response.getBody()).getReturnValue());
+        Assert.assertTrue(server.isActive());
+    }
+
+    @Test
+    public void testCompletionStageResult() {
+        // 异步方法的结果在 future 完成后写回, 响应中为 future 的值而不是 future 本身
+        RpcMessage response = call("helloAsync", new Class<?>[]{String.class}, new Object[]{"liujue"});
+        Assert.assertEquals(MessageStatus.SUCCESS.getStatus(), response.getMessageHeader().getMessageStatus());
+        Assert.assertEquals("hello liujue", ((RpcResponse) response.getBody()).getReturnValue());
+
+        // future 尚未完成时不写回响应, 完成后再写回
+        MessageHeader header = send("deferred", new Class<?>[0], new Object[0]);
+        Assert.assertNull(server.readOutbound());
+        TestService.DEFERRED.complete("done");
+        response = receive(header);
+        Assert.assertEquals(MessageStatus.SUCCESS.getStatus(), response.getMessageHeader().getMessageStatus());
+        Assert.assertEquals("done", ((RpcResponse) response.getBody()).getReturnValue());
+    }
+
+    @Test
+    public void testCompletionStageFailure() {
+        // 异常完成的 future 写回失败响应, 异常信息取自原始异常
+        RpcMessage response = call("failAsync", new Class<?>[0], new Object[0]);
+        Assert.assertEquals(MessageStatus.FAIL.getStatus(), response.getMessageHeader().getMessageStatus());
+        String message = ((RpcResponse) response.getBody()).getExceptionValue().getMessage();
+        Assert.assertTrue(message.contains("boom"));
+        Assert.assertFalse(message.contains("CompletionException"));
+    }
+
+    /**
+     * 发送请求并返回响应, 被调用的方法需在当前线程中执行 (非阻塞方法)
+     */
+    private RpcMessage call(String method, Class<?>[] types, Object[] values) {
+        return receive(send(method, types, values));
+    }
+
+    /**
+     * 将请求交给服务端处理, 返回请求头
+     */
+    private MessageHeader send(String method, Class<?>[] types, Object[] values) {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName(SERVICE_NAME);
+        request.setMethod(method);
+        request.setParameterTypes(types);
+        request.setParameterValues(values);
+        MessageHeader header = MessageHeader.build(SerializerType.HESSIAN.name());
+        header.setMessageType(MessageType.REQUEST.getType());
+        RpcMessage message = new RpcMessage();
+        message.setMessageHeader(header);
+        message.setBody(request);
+        Assert.assertTrue(client.writeOutbound(message));
+        ByteBuf frame;
+        while ((frame = client.readOutbound()) != null) {
+            server.writeInbound(frame);
+        }
+        return header;
+    }
+
+    /**
+     * 将服务端写出的响应交给客户端解码, 返回与请求对应的响应
+     */
+    private RpcMessage receive(MessageHeader header) {
+        ByteBuf frame;
+        while ((frame = server.readOutbound()) != null) {
+            client.writeInbound(frame);
+        }
+        RpcMessage response = client.readInbound();
+        Assert.assertNotNull(response);
+        Assert.assertEquals(header.getSequenceId(), response.getMessageHeader().getSequenceId());
+        return response;
+    }
+
+    public static class TestService {
+
+        static final CompletableFuture<String> DEFERRED = new CompletableFuture<>();
+
+        static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+        @NonBlocking
+        public String threadName() {
+            return Thread.currentThread().getName();
+        }
+
+        public String await() throws InterruptedException {
+            RELEASE.await(10, TimeUnit.SECONDS);
+            return Thread.currentThread().getName();
+        }
+
+        @NonBlocking
+        public String repeat(int count) {
+            char[] chars = new char[count];
+            Arrays.fill(chars, 'x');
+            return new String(chars);
+        }
+
+        @NonBlocking
+        public CompletableFuture<String> helloAsync(String name) {
+            return CompletableFuture.completedFuture("hello " + name);
+        }
+
+        @NonBlocking
+        public CompletableFuture<String> deferred() {
+            return DEFERRED;
+        }
+
+        @NonBlocking
+        public CompletableFuture<String> failAsync() {
+            // 依赖阶段中抛出的异常会被包装为 CompletionException
+            return CompletableFuture.completedFuture("boom").thenApply(value -> {
+                throw new IllegalStateException(value);
+            });
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.lj.rpc.server.invoker;
+
+import com.lj.rpc.core.entity.MethodDescriptor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 方法调用器测试类
+ *
+ * @author liujue
+ */
+public class MethodInvokerTest {
+
+    private final TestService service = new TestService();
+
+    @Test
+    public void testPrimitives() throws Exception {
+        for (MethodInvoker invoker : invokers(service, method(TestService.class, "add", int.class, long.class))) {
+            Assert.assertEquals(name(invoker), 3L, invoker.invoke(new Object[]{1, 2L}));
+        }
+        for (MethodInvoker invoker : invokers(service, method(TestService.class, "negate", boolean.class))) {
+            Assert.assertEquals(name(invoker), Boolean.FALSE, invoker.invoke(new Object[]{true}));
+        }
+        for (MethodInvoker invoker : invokers(service, method(TestService.class, "hello", String.class))) {
+            Assert.assertEquals(name(invoker), "hello liujue", invoker.invoke(new Object[]{"liujue"}));
+        }
+        Assert.assertTrue(MethodInvokerFactory.create(descriptor(), service,
+                method(TestService.class, "add", int.class, long.class)) instanceof LambdaMethodInvoker);
+    }
+
+    @Test
+    public void testVoidMethod() throws Exception {
+        Method touch = method(TestService.class, "touch");
+        Assert.assertFalse(LambdaMethodInvoker.isSupported(touch));
+        Assert.assertTrue(MethodInvokerFactory.create(descriptor(), service, touch) instanceof MethodHandleInvoker);
+        int touched = 0;
+        for (MethodInvoker invoker : invokers(service, touch)) {
+            Assert.assertNull(name(invoker), invoker.invoke(new Object[0]));
+            // 无参方法也接受 null 参数数组
+            Assert.assertNull(name(invoker), invoker.invoke(null));
+            touched += 2;
+        }
+        Assert.assertEquals(touched, service.touched);
+    }
+
+    @Test
+    public void testExceptionsAreNotWrapped() throws Exception {
+        Method checked = method(TestService.class, "checked");
+        Method unchecked = method(TestService.class, "unchecked");
+        Method error = method(TestService.class, "error");
+        for (MethodInvoker invoker : invokers(service, checked)) {
+            try {
+                invoker.invoke(new Object[0]);
+                Assert.fail(name(invoker));
+            } catch (IOException e) {
+                Assert.assertSame(name(invoker), TestService.CHECKED, e);
+            }
+        }
+        for (MethodInvoker invoker : invokers(service, unchecked)) {
+            try {
+                invoker.invoke(new Object[0]);
+                Assert.fail(name(invoker));
+            } catch (IllegalStateException e) {
+                Assert.assertSame(name(invoker), TestService.UNCHECKED, e);
+            }
+        }
+        // Error 按接口约定包装为 InvocationTargetException
+        for (MethodInvoker invoker : invokers(service, error)) {
+            try {
+                invoker.invoke(new Object[0]);
+                Assert.fail(name(invoker));
+            } catch (InvocationTargetException e) {
+                Assert.assertSame(name(invoker), TestService.ERROR, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    public void testArityFallback() throws Exception {
+        Method four = method(TestService.class, "four", int.class, int.class, int.class, int.class);
+        Method five = method(TestService.class, "five", int.class, int.class, int.class, int.class, int.class);
+        Assert.assertTrue(MethodInvokerFactory.create(descriptor(), service, four) instanceof LambdaMethodInvoker);
+        MethodInvoker invoker = MethodInvokerFactory.create(descriptor(), service, five);
+        Assert.assertTrue(invoker instanceof MethodHandleInvoker);
+        Assert.assertEquals(15, invoker.invoke(new Object[]{1, 2, 3, 4, 5}));
+
+        // 参数槽位超出 MethodHandle 的限制时回退到反射
+        Class<?>[] types = new Class<?>[127];
+        Arrays.fill(types, long.class);
+        Object[] args = new Object[127];
+        Arrays.fill(args, 1L);
+        args[126] = 2L;
+        invoker = MethodInvokerFactory.create(descriptor(), service, method(TestService.class, "wide", types));
+        Assert.assertTrue(invoker instanceof ReflectiveMethodInvoker);
+        Assert.assertEquals(3L, invoker.invoke(args));
+    }
+
+    @Test
+    public void testNonPublicImplementation() throws Exception {
+        HiddenService hidden = new HiddenService();
+        // 与 LocalServiceCache 一致, 从实现类上查找目标方法
+        Method hello = hidden.getClass().getMethod("hello", String.class);
+        Assert.assertFalse(LambdaMethodInvoker.isSupported(hello));
+        MethodInvoker invoker = MethodInvokerFactory.create(descriptor(), hidden, hello);
+        Assert.assertTrue(invoker instanceof MethodHandleInvoker);
+        Assert.assertEquals("hi liujue", invoker.invoke(new Object[]{"liujue"}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongArgumentCount() throws Exception {
+        MethodInvokerFactory.create(descriptor(), service, method(TestService.class, "hello", String.class))
+                .invoke(new Object[0]);
+    }
+
+    /**
+     * 可以处理该方法的全部实现
+     */
+    private static List<MethodInvoker> invokers(Object service, Method method) throws Exception {
+        List<MethodInvoker> invokers = new ArrayList<>();
+        if (LambdaMethodInvoker.isSupported(method)) {
+            invokers.add(new LambdaMethodInvoker(descriptor(), service, method));
+        }
+        invokers.add(new MethodHandleInvoker(descriptor(), service, method));
+        invokers.add(new ReflectiveMethodInvoker(descriptor(), service, method));
+        return invokers;
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameterTypes) throws Exception {
+        return type.getMethod(name, parameterTypes);
+    }
+
+    private static MethodDescriptor descriptor() {
+        return new MethodDescriptor("com.lj.rpc.server.invoker.TestService1.0", "test", new Class<?>[0]);
+    }
+
+    private static String name(MethodInvoker invoker) {
+        return invoker.getClass().getSimpleName();
+    }
+
+    public interface Greeter {
+        String hello(String name);
+    }
+
+    public static class TestService {
+
+        static final IOException CHECKED = new IOException("checked");
+
+        static final IllegalStateException UNCHECKED = new IllegalStateException("unchecked");
+
+        static final AssertionError ERROR = new AssertionError("error");
+
+        int touched;
+
+        public long add(int a, long b) {
+            return a + b;
+        }
+
+        public boolean negate(boolean value) {
+            return !value;
+        }
+
+        public String hello(String name) {
+            return "hello " + name;
+        }
+
+        public void touch() {
+            touched++;
+        }
+
+        public String checked() throws IOException {
+            throw CHECKED;
+        }
+
+        public String unchecked() {
+            throw UNCHECKED;
+        }
+
+        public String error() {
+            throw ERROR;
+        }
+
+        public int four(int a, int b, int c, int d) {
+            return a + b + c + d;
+        }
+
+        public int five(int a, int b, int c, int d, int e) {
+            return a + b + c + d + e;
+        }
+
+        public long wide(long a0, long a1, long a2, long a3, long a4, long a5, long a6, long a7, long a8, long a9,
+                         long a10, long a11, long a12, long a13, long a14, long a15, long a16, long a17, long a18,
+                         long a19, long a20, long a21, long a22, long a23, long a24, long a25, long a26, long a27,
+                         long a28, long a29, long a30, long a31, long a32, long a33, long a34, long a35, long a36,
+                         long a37, long a38, long a39, long a40, long a41, long a42, long a43, long a44, long a45,
+                         long a46, long a47, long a48, long a49, long a50, long a51, long a52, long a53, long a54,
+                         long a55, long a56, long a57, long a58, long a59, long a60, long a61, long a62, long a63,
+                         long a64, long a65, long a66, long a67, long a68, long a69, long a70, long a71, long a72,
+                         long a73, long a74, long a75, long a76, long a77, long a78, long a79, long a80, long a81,
+                         long a82, long a83, long a84, long a85, long a86, long a87, long a88, long a89, long a90,
+                         long a91, long a92, long a93, long a94, long a95, long a96, long a97, long a98, long a99,
+                         long a100, long a101, long a102, long a103, long a104, long a105, long a106, long a107,
+                         long a108, long a109, long a110, long a111, long a112, long a113, long a114, long a115,
+                         long a116, long a117, long a118, long a119, long a120, long a121, long a122, long a123,
+                         long a124, long a125, long a126) {
+            return a0 + a126;
+        }
+    }
+
+    static class HiddenService implements Greeter {
+
+        @Override
+        public String hello(String name) {
+            return "hi " + name;
+        }
+    }
+}
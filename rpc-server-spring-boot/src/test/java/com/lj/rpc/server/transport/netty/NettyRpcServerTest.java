@@ -0,0 +1,207 @@
+package com.lj.rpc.server.transport.netty;
+
+import com.lj.rpc.core.codec.RpcFrameDecoder;
+import com.lj.rpc.core.codec.SharableRpcMessageCodec;
+import com.lj.rpc.core.entity.RpcRequest;
+import com.lj.rpc.core.entity.RpcResponse;
+import com.lj.rpc.core.enums.MessageStatus;
+import com.lj.rpc.core.enums.MessageType;
+import com.lj.rpc.core.enums.SerializerType;
+import com.lj.rpc.core.protocol.MessageHeader;
+import com.lj.rpc.core.protocol.RpcMessage;
+import com.lj.rpc.server.annotation.NonBlocking;
+import com.lj.rpc.server.cache.LocalServiceCache;
+import com.lj.rpc.server.config.RpcServerProperties;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务端测试类, 使用只实现了协议编解码的简易客户端
+ *
+ * @author liujue
+ */
+public class NettyRpcServerTest {
+
+    private static final String SERVICE_NAME = "com.lj.rpc.server.transport.netty.EchoService1.0";
+
+    private final Map<Integer, CompletableFuture<RpcMessage>> pending = new ConcurrentHashMap<>();
+
+    private EventLoopGroup clientGroup;
+
+    private NettyRpcServer rpcServer;
+
+    private Thread server;
+
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        LocalServiceCache.addService(SERVICE_NAME, new EchoService());
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        clientGroup = new NioEventLoopGroup(1);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        clientGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        if (server != null) {
+            // 关闭监听 socket 后 start 方法释放事件循环组与业务线程池并返回
+            rpcServer.stop();
+            server.join(5000);
+            Assert.assertFalse(server.isAlive());
+        }
+    }
+
+    @Test
+    public void testFlushConsolidation() throws Exception {
+        RpcServerProperties properties = new RpcServerProperties();
+        properties.setFlushConsolidationLimit(16);
+        start(properties);
+        Channel channel = connect(16);
+        // 业务线程池与 EventLoop 中先后完成的响应都能及时 flush, 不会滞留在合并队列中
+        List<CompletableFuture<RpcMessage>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(send(channel, i % 2 == 0 ? "echo" : "echoInline", "liujue-" + i));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            RpcMessage response = futures.get(i).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(MessageStatus.SUCCESS.getStatus(), response.getMessageHeader().getMessageStatus());
+            Assert.assertEquals("liujue-" + i, ((RpcResponse) response.getBody()).getReturnValue());
+        }
+    }
+
+    @Test
+    public void testNioAcceptorsFallback() throws Exception {
+        RpcServerProperties properties = new RpcServerProperties();
+        properties.setTransport("nio");
+        properties.setAcceptors(4);
+        start(properties);
+        // NIO 不支持 SO_REUSEPORT, 退回单个监听 socket, 而不是在重复绑定端口时启动失败
+        assertEcho(connect(0));
+        Assert.assertTrue(server.isAlive());
+    }
+
+    @Test
+    public void testEpollAcceptors() throws Exception {
+        Assume.assumeTrue(Epoll.isAvailable());
+        RpcServerProperties properties = new RpcServerProperties();
+        properties.setTransport("epoll");
+        properties.setAcceptors(2);
+        start(properties);
+        // 多个监听 socket 通过 SO_REUSEPORT 绑定同一端口, 每个连接都能被接受
+        for (int i = 0; i < 4; i++) {
+            assertEcho(connect(0));
+        }
+        Assert.assertTrue(server.isAlive());
+    }
+
+    private void assertEcho(Channel channel) throws Exception {
+        RpcMessage response = send(channel, "echo", "liujue").get(5, TimeUnit.SECONDS);
+        Assert.assertEquals("liujue", ((RpcResponse) response.getBody()).getReturnValue());
+    }
+
+    private void start(RpcServerProperties properties) {
+        rpcServer = new NettyRpcServer(properties);
+        server = new Thread(() -> rpcServer.start(port), "rpc-server");
+        server.setDaemon(true);
+        server.start();
+    }
+
+    /**
+     * 连接服务端, 服务端尚未完成启动时重试
+     */
+    private Channel connect(int flushConsolidationLimit) throws Exception {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(clientGroup)
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        if (flushConsolidationLimit > 0) {
+                            ch.pipeline().addLast(new FlushConsolidationHandler(flushConsolidationLimit, true));
+                        }
+                        ch.pipeline().addLast(new RpcFrameDecoder(), new SharableRpcMessageCodec(),
+                                new ResponseHandler());
+                    }
+                });
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            try {
+                return bootstrap.connect(InetAddress.getLocalHost(), port).sync().channel();
+            } catch (Exception e) {
+                if (System.currentTimeMillis() > deadline || !server.isAlive()) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private CompletableFuture<RpcMessage> send(Channel channel, String method, String argument) {
+        RpcRequest request = new RpcRequest();
+        request.setServiceName(SERVICE_NAME);
+        request.setMethod(method);
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setParameterValues(new Object[]{argument});
+        MessageHeader header = MessageHeader.build(SerializerType.HESSIAN.name());
+        header.setMessageType(MessageType.REQUEST.getType());
+        RpcMessage message = new RpcMessage();
+        message.setMessageHeader(header);
+        message.setBody(request);
+        CompletableFuture<RpcMessage> future = new CompletableFuture<>();
+        pending.put(header.getSequenceId(), future);
+        channel.writeAndFlush(message);
+        return future;
+    }
+
+    /**
+     * 按序列号完成对应的调用
+     */
+    private class ResponseHandler extends SimpleChannelInboundHandler<RpcMessage> {
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, RpcMessage msg) {
+            CompletableFuture<RpcMessage> future = pending.remove(msg.getMessageHeader().getSequenceId());
+            if (future != null) {
+                future.complete(msg);
+            }
+        }
+    }
+
+    public static class EchoService {
+
+        public String echo(String value) {
+            return value;
+        }
+
+        @NonBlocking
+        public String echoInline(String value) {
+            return value;
+        }
+    }
+}